@@ -144,38 +144,26 @@ public class SelectionDemoAdapter extends SectioningAdapter {
 
     public void deleteSelection() {
 
-        traverseSelection(new SelectionVisitor() {
+        // removes runs of selected items in bulk, as a single batch update, and clears the selection
+        removeSelected(new RemovalCallback() {
             @Override
-            public void onVisitSelectedSection(int sectionIndex) {
-                Log.d(TAG, "onVisitSelectedSection() called with: " + "sectionIndex = [" + sectionIndex + "]");
+            public void onRemoveSelectedSection(int sectionIndex) {
+                Log.d(TAG, "onRemoveSelectedSection() called with: " + "sectionIndex = [" + sectionIndex + "]");
                 sections.remove(sectionIndex);
-                notifySectionRemoved(sectionIndex);
             }
 
             @Override
-            public void onVisitSelectedSectionItem(int sectionIndex, int itemIndex) {
-                Log.d(TAG, "onVisitSelectedSectionItem() called with: " + "sectionIndex = [" + sectionIndex + "], itemIndex = [" + itemIndex + "]");
-                Section section = sections.get(sectionIndex);
-                if (section != null) {
-                    section.items.remove(itemIndex);
-                    notifySectionItemRemoved(sectionIndex, itemIndex);
-                }
+            public void onRemoveSelectedSectionItems(int sectionIndex, int fromItemIndex, int number) {
+                Log.d(TAG, "onRemoveSelectedSectionItems() called with: " + "sectionIndex = [" + sectionIndex + "], fromItemIndex = [" + fromItemIndex + "], number = [" + number + "]");
+                sections.get(sectionIndex).items.subList(fromItemIndex, fromItemIndex + number).clear();
             }
 
             @Override
-            public void onVisitSelectedFooter(int sectionIndex) {
-                Log.d(TAG, "onVisitSelectedFooter() called with: " + "sectionIndex = [" + sectionIndex + "]");
-                Section section = sections.get(sectionIndex);
-                if (section != null) {
-                    section.footer = null;
-                    notifySectionFooterRemoved(sectionIndex);
-                }
+            public void onRemoveSelectedFooter(int sectionIndex) {
+                Log.d(TAG, "onRemoveSelectedFooter() called with: " + "sectionIndex = [" + sectionIndex + "]");
+                sections.get(sectionIndex).footer = null;
             }
         });
-
-        // clear selection without notification - because that would fight the deletion animations triggered above
-        clearSelection(false);
-
     }
 
     public void duplicateSelection() {
@@ -283,4 +271,19 @@ public class SelectionDemoAdapter extends SectioningAdapter {
 
         fvh.itemView.setActivated(isSectionFooterSelected(sectionIndex));
     }
+
+    @Override
+    public void onBindItemViewHolderSelection(SectioningAdapter.ItemViewHolder viewHolder, int sectionIndex, int itemIndex, int itemType) {
+        viewHolder.itemView.setActivated(isSectionItemSelected(sectionIndex, itemIndex));
+    }
+
+    @Override
+    public void onBindHeaderViewHolderSelection(SectioningAdapter.HeaderViewHolder viewHolder, int sectionIndex, int headerType) {
+        viewHolder.itemView.setActivated(isSectionSelected(sectionIndex));
+    }
+
+    @Override
+    public void onBindFooterViewHolderSelection(SectioningAdapter.FooterViewHolder viewHolder, int sectionIndex, int footerType) {
+        viewHolder.itemView.setActivated(isSectionFooterSelected(sectionIndex));
+    }
 }
@@ -0,0 +1,154 @@
+package org.zakariya.stickyheaders;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the pre-layout pass of an animated removal, which lays out views at their positions before the
+ * removal, doesn't record what it measures against those positions. Each section's header has its own height,
+ * so a header measured in pre-layout and cached by its old position would size the header (and ghost header)
+ * which later takes that position.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PreLayoutTest {
+
+	private static final int WIDTH = 480;
+	private static final int HEIGHT = 800;
+
+	/**
+	 * A TestAdapter whose headers' heights belong to their sections, and move with them
+	 */
+	private static class HeaderHeightAdapter extends TestAdapter {
+		ArrayList<Integer> headerHeights = new ArrayList<>();
+
+		void addSection(int numberOfItems, int headerHeight) {
+			addSection(numberOfItems, true, false);
+			headerHeights.add(headerHeight);
+		}
+
+		void removeSection(int sectionIndex) {
+			sections.remove(sectionIndex);
+			headerHeights.remove(sectionIndex);
+			notifySectionRemoved(sectionIndex);
+		}
+
+		@Override
+		public void onBindHeaderViewHolder(HeaderViewHolder viewHolder, int sectionIndex, int headerUserType) {
+			ViewGroup.LayoutParams layoutParams = viewHolder.itemView.getLayoutParams();
+			layoutParams.height = headerHeights.get(sectionIndex);
+			viewHolder.itemView.setLayoutParams(layoutParams);
+		}
+	}
+
+	/**
+	 * Counts the heights reported while the layout manager is in pre-layout
+	 */
+	private static class RecordingEstimator extends StickyHeaderLayoutManager.AverageExtentEstimator {
+		RecordingLayoutManager layoutManager;
+		int preLayoutMeasurements;
+
+		@Override
+		public void onViewMeasured(int baseType, int height) {
+			if (layoutManager.inPreLayout) {
+				preLayoutMeasurements++;
+			}
+			super.onViewMeasured(baseType, height);
+		}
+	}
+
+	private static class RecordingLayoutManager extends StickyHeaderLayoutManager {
+		boolean inPreLayout;
+		int preLayouts;
+
+		@Override
+		public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+			inPreLayout = state.isPreLayout();
+			if (inPreLayout) {
+				preLayouts++;
+			}
+			super.onLayoutChildren(recycler, state);
+			inPreLayout = false;
+		}
+	}
+
+	@Test
+	public void removingSection_preLayoutDoesNotCacheSizesOrFeedEstimator() {
+		final int[] result = new int[3];
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				removeSectionAndScroll(result);
+			}
+		});
+
+		assertEquals("removal wasn't pre-laid out", 1, result[0]);
+		assertEquals("pre-layout heights reported to the extent estimator", 0, result[1]);
+		assertEquals("headers or ghost headers laid out at another section's header height", 0, result[2]);
+	}
+
+	/**
+	 * @param result receives the number of pre-layout passes, the number of heights reported to the estimator
+	 *               during them, and the number of headers and ghost headers laid out at the wrong height
+	 */
+	private static void removeSectionAndScroll(int[] result) {
+		// the first section spans as many positions as two of the others, so the headers vended in
+		// pre-layout take positions which belong to headers after the removal
+		HeaderHeightAdapter adapter = new HeaderHeightAdapter();
+		adapter.addSection(8, TestAdapter.HEADER_HEIGHT);
+		for (int s = 1; s < 12; s++) {
+			adapter.addSection(3, TestAdapter.HEADER_HEIGHT + 4 * s);
+		}
+
+		RecordingLayoutManager layoutManager = new RecordingLayoutManager();
+		RecordingEstimator estimator = new RecordingEstimator();
+		estimator.layoutManager = layoutManager;
+		layoutManager.setExtentEstimator(estimator);
+		layoutManager.setMeasuredSizeCacheEnabled(true);
+
+		RecyclerView recyclerView = new RecyclerView(InstrumentationRegistry.getTargetContext());
+		recyclerView.setLayoutManager(layoutManager);
+		recyclerView.setAdapter(adapter);
+		layout(recyclerView);
+
+		// the default item animator runs predictive animations, so this is pre-laid out
+		adapter.removeSection(0);
+		layout(recyclerView);
+		result[0] = layoutManager.preLayouts;
+		result[1] = estimator.preLayoutMeasurements;
+
+		// bring the headers whose positions were measured in pre-layout into view
+		recyclerView.scrollBy(0, HEIGHT / 2);
+		layout(recyclerView);
+
+		int wrongHeights = 0;
+		for (int i = 0, n = layoutManager.getChildCount(); i < n; i++) {
+			View view = layoutManager.getChildAt(i);
+			int position = layoutManager.getPosition(view);
+			int baseType = adapter.getItemViewBaseType(position);
+			if (baseType == SectioningAdapter.TYPE_HEADER || baseType == SectioningAdapter.TYPE_GHOST_HEADER) {
+				int sectionIndex = adapter.getSectionForAdapterPosition(position);
+				if (view.getHeight() != adapter.headerHeights.get(sectionIndex)) {
+					wrongHeights++;
+				}
+			}
+		}
+		result[2] = wrongHeights;
+	}
+
+	private static void layout(RecyclerView recyclerView) {
+		recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+				View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+		recyclerView.layout(0, 0, WIDTH, HEIGHT);
+	}
+}
@@ -0,0 +1,77 @@
+package org.zakariya.stickyheaders;
+
+import android.content.Context;
+import android.os.Debug;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Scrolls a StickyHeaderLayoutManager back and forth over a range it has already laid out, counting the
+ * allocations made on the main thread. Once the recycled view pool and the layout manager's scratch storage
+ * have grown to fit, scrolling must not allocate.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScrollAllocationTest {
+
+	private static final int WIDTH = 480;
+	private static final int HEIGHT = 800;
+	private static final int NUMBER_OF_SCROLL_STEPS = 400;
+	private static final int SCROLL_STEP = 13;
+
+	@Test
+	public void scrolling_doesNotAllocate() {
+		final int[] allocations = new int[1];
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				allocations[0] = countScrollAllocations();
+			}
+		});
+
+		assertEquals(0, allocations[0]);
+	}
+
+	@SuppressWarnings("deprecation")
+	private static int countScrollAllocations() {
+		TestAdapter adapter = new TestAdapter();
+		for (int s = 0; s < 40; s++) {
+			adapter.addSection(20, true, s % 2 == 0);
+		}
+
+		Context context = InstrumentationRegistry.getTargetContext();
+		RecyclerView recyclerView = new RecyclerView(context);
+		recyclerView.setItemAnimator(null);
+		recyclerView.setLayoutManager(new StickyHeaderLayoutManager());
+		recyclerView.setAdapter(adapter);
+		recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+				View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+		recyclerView.layout(0, 0, WIDTH, HEIGHT);
+
+		// scroll over the range once so every view and all scratch storage needed there exists
+		scroll(recyclerView, SCROLL_STEP);
+		scroll(recyclerView, -SCROLL_STEP);
+
+		Debug.startAllocCounting();
+		Debug.resetThreadAllocCount();
+		scroll(recyclerView, SCROLL_STEP);
+		scroll(recyclerView, -SCROLL_STEP);
+		int allocations = Debug.getThreadAllocCount();
+		Debug.stopAllocCounting();
+
+		return allocations;
+	}
+
+	private static void scroll(RecyclerView recyclerView, int step) {
+		for (int i = 0; i < NUMBER_OF_SCROLL_STEPS; i++) {
+			recyclerView.scrollBy(0, step);
+		}
+	}
+}
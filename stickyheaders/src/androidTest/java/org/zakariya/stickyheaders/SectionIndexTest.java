@@ -0,0 +1,99 @@
+package org.zakariya.stickyheaders;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Patches a SectionIndex through random section inserts, removals and updates, checking it after each against
+ * a lookup table built from scratch. Runs on a device since SectioningAdapter needs the Android runtime.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SectionIndexTest {
+
+	private static final int NUMBER_OF_OPERATIONS = 500;
+
+	@Test
+	public void lookupTable_matchesRebuild() {
+		checkAgainstRebuild(SectioningAdapter.PositionLookupStrategy.LOOKUP_TABLE);
+	}
+
+	@Test
+	public void binarySearch_matchesRebuild() {
+		checkAgainstRebuild(SectioningAdapter.PositionLookupStrategy.BINARY_SEARCH);
+	}
+
+	@Test
+	public void fenwickTree_matchesRebuild() {
+		checkAgainstRebuild(SectioningAdapter.PositionLookupStrategy.FENWICK_TREE);
+	}
+
+	@Test
+	public void emptyIndex() {
+		TestAdapter adapter = new TestAdapter();
+		for (SectioningAdapter.PositionLookupStrategy strategy : SectioningAdapter.PositionLookupStrategy.values()) {
+			SectionIndex index = new SectionIndex(strategy);
+			index.build(adapter);
+			assertEquals(0, index.getNumberOfSections());
+			assertEquals(0, index.getTotalNumberOfItems());
+			assertEquals(0, index.getNumberOfHeadersBefore(0));
+		}
+	}
+
+	private void checkAgainstRebuild(SectioningAdapter.PositionLookupStrategy strategy) {
+		Random random = new Random(strategy.ordinal());
+		TestAdapter adapter = new TestAdapter();
+		for (int s = 0; s < 10; s++) {
+			adapter.addSection(random.nextInt(10), random.nextBoolean(), random.nextBoolean());
+		}
+
+		SectionIndex index = new SectionIndex(strategy);
+		index.build(adapter);
+		SectionIndex rebuilt = new SectionIndex(SectioningAdapter.PositionLookupStrategy.LOOKUP_TABLE);
+
+		for (int op = 0; op < NUMBER_OF_OPERATIONS; op++) {
+			int numberOfSections = adapter.getNumberOfSections();
+			int operation = numberOfSections == 0 ? 0 : random.nextInt(4);
+			switch (operation) {
+				case 0: {
+					int sectionIndex = random.nextInt(numberOfSections + 1);
+					adapter.sections.add(sectionIndex, new TestAdapter.Section(random.nextInt(10), random.nextBoolean(), random.nextBoolean()));
+					index.insertSection(adapter, sectionIndex);
+					break;
+				}
+				case 1: {
+					int sectionIndex = random.nextInt(numberOfSections);
+					adapter.sections.remove(sectionIndex);
+					index.removeSection(sectionIndex);
+					break;
+				}
+				case 2: {
+					int sectionIndex = random.nextInt(numberOfSections);
+					adapter.sections.get(sectionIndex).numberOfItems = random.nextInt(10);
+					index.updateSection(adapter, sectionIndex);
+					break;
+				}
+				case 3: {
+					int sectionIndex = random.nextInt(numberOfSections);
+					TestAdapter.Section section = adapter.sections.get(sectionIndex);
+					section.hasFooter = !section.hasFooter;
+					index.updateSection(adapter, sectionIndex);
+					break;
+				}
+			}
+
+			rebuilt.build(adapter);
+			assertNull(strategy + " after operation " + op, index.findDifference(rebuilt));
+			for (int s = 0; s <= index.getNumberOfSections(); s++) {
+				assertEquals(rebuilt.getNumberOfHeadersBefore(s), index.getNumberOfHeadersBefore(s));
+				assertEquals(rebuilt.getNumberOfFootersBefore(s), index.getNumberOfFootersBefore(s));
+			}
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package org.zakariya.stickyheaders;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks SectioningAdapter's running selection count as sections, items and footers are inserted and removed.
+ * Runs on a device since SectioningAdapter needs the Android runtime.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SelectionCountTest {
+
+	private TestAdapter adapter;
+
+	@Before
+	public void setUp() {
+		adapter = new TestAdapter();
+		adapter.addSection(5, true, false);
+		adapter.addSection(5, true, true);
+		adapter.addSection(5, false, false);
+		adapter.notifyAllSectionsDataSetChanged();
+	}
+
+	@Test
+	public void selectingItemsAndFootersCounts() {
+		adapter.setSectionItemSelected(0, 1, true);
+		adapter.setSectionItemRangeSelected(2, 0, 3, true);
+		adapter.setSectionFooterSelected(1, true);
+		assertEquals(5, adapter.getSelectedItemCount());
+
+		// selecting again doesn't count twice
+		adapter.setSectionItemRangeSelected(2, 1, 4, true);
+		assertEquals(7, adapter.getSelectedItemCount());
+
+		adapter.setSectionItemSelected(0, 1, false);
+		assertEquals(6, adapter.getSelectedItemCount());
+
+		adapter.clearSelection(false);
+		assertEquals(0, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSelectionEmpty());
+	}
+
+	@Test
+	public void selectingSectionCountsItsItemsAndFooter() {
+		adapter.setSectionSelected(1, true);
+		assertEquals(6, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSectionFooterSelected(1));
+
+		adapter.setSectionSelected(1, false);
+		assertEquals(0, adapter.getSelectedItemCount());
+	}
+
+	@Test
+	public void insertingItemsShiftsSelection() {
+		adapter.setSectionItemSelected(0, 2, true);
+
+		adapter.sections.get(0).numberOfItems += 2;
+		adapter.notifySectionItemRangeInserted(0, 1, 2);
+		assertEquals(1, adapter.getSelectedItemCount());
+		assertFalse(adapter.isSectionItemSelected(0, 2));
+		assertTrue(adapter.isSectionItemSelected(0, 4));
+	}
+
+	@Test
+	public void insertingItemsIntoSelectedSectionSelectsThem() {
+		adapter.setSectionSelected(0, true);
+		assertEquals(5, adapter.getSelectedItemCount());
+
+		adapter.sections.get(0).numberOfItems += 3;
+		adapter.notifySectionItemRangeInserted(0, 5, 3);
+		assertEquals(8, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSectionItemSelected(0, 7));
+	}
+
+	@Test
+	public void removingItemsDropsTheirSelection() {
+		adapter.setSectionItemRangeSelected(2, 1, 3, true);
+
+		adapter.sections.get(2).numberOfItems -= 2;
+		adapter.notifySectionItemRangeRemoved(2, 0, 2);
+		assertEquals(2, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSectionItemSelected(2, 0));
+		assertTrue(adapter.isSectionItemSelected(2, 1));
+		assertFalse(adapter.isSectionItemSelected(2, 2));
+
+		adapter.sections.get(2).numberOfItems--;
+		adapter.notifySectionItemRemoved(2, 0);
+		assertEquals(1, adapter.getSelectedItemCount());
+	}
+
+	@Test
+	public void removingSectionDropsItsSelection() {
+		adapter.setSectionSelected(1, true);
+		adapter.setSectionItemSelected(2, 0, true);
+		assertEquals(7, adapter.getSelectedItemCount());
+
+		adapter.sections.remove(1);
+		adapter.notifySectionRemoved(1);
+		assertEquals(1, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSectionItemSelected(1, 0));
+	}
+
+	@Test
+	public void insertingSectionShiftsSelection() {
+		adapter.setSectionItemSelected(2, 4, true);
+
+		adapter.sections.add(0, new TestAdapter.Section(3, true, true));
+		adapter.notifySectionInserted(0);
+		assertEquals(1, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSectionItemSelected(3, 4));
+	}
+
+	@Test
+	public void footerNotifiesKeepCount() {
+		adapter.setSectionFooterSelected(1, true);
+		assertEquals(1, adapter.getSelectedItemCount());
+
+		adapter.sections.get(1).hasFooter = false;
+		adapter.notifySectionFooterRemoved(1);
+		assertEquals(0, adapter.getSelectedItemCount());
+		assertFalse(adapter.isSectionFooterSelected(1));
+
+		// a footer inserted into a selected section is selected with it
+		adapter.setSectionSelected(0, true);
+		assertEquals(5, adapter.getSelectedItemCount());
+		adapter.sections.get(0).hasFooter = true;
+		adapter.notifySectionFooterInserted(0);
+		assertEquals(6, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSectionFooterSelected(0));
+
+		adapter.sections.get(0).hasFooter = false;
+		adapter.notifySectionFooterRemoved(0);
+		assertEquals(5, adapter.getSelectedItemCount());
+	}
+
+	@Test
+	public void sectionDataSetChangedClearsItemSelection() {
+		adapter.setSectionItemRangeSelected(0, 0, 2, true);
+		adapter.setSectionSelected(1, true);
+		assertEquals(8, adapter.getSelectedItemCount());
+
+		adapter.notifySectionDataSetChanged(0);
+		assertEquals(6, adapter.getSelectedItemCount());
+
+		// a selected section stays selected, footer and all
+		adapter.sections.get(1).numberOfItems = 2;
+		adapter.notifySectionDataSetChanged(1);
+		assertEquals(3, adapter.getSelectedItemCount());
+		assertTrue(adapter.isSectionFooterSelected(1));
+	}
+
+	@Test
+	public void batchedChangesKeepCount() {
+		adapter.setSectionItemRangeSelected(2, 0, 5, true);
+
+		adapter.beginUpdates();
+		adapter.sections.get(2).numberOfItems -= 2;
+		adapter.notifySectionItemRangeRemoved(2, 3, 2);
+		adapter.sections.get(1).hasFooter = false;
+		adapter.notifySectionFooterRemoved(1);
+		adapter.endUpdates();
+
+		assertEquals(3, adapter.getSelectedItemCount());
+	}
+}
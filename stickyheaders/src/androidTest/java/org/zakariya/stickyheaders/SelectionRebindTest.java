@@ -0,0 +1,127 @@
+package org.zakariya.stickyheaders;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that toggling an item's selection, which rebinds it with the SELECTION_CHANGED payload, keeps the
+ * size the layout manager measured for it. The item's view is changed to measure taller before the toggle,
+ * so a layout manager which discarded the measured size would lay it out taller and move the items after it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SelectionRebindTest {
+
+	private static final int WIDTH = 480;
+	private static final int HEIGHT = 800;
+
+	/**
+	 * Wraps its content, which is naturalHeight tall
+	 */
+	private static class ResizableView extends View {
+		int naturalHeight = TestAdapter.ITEM_HEIGHT;
+
+		ResizableView(Context context) {
+			super(context);
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+			int height = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY ? MeasureSpec.getSize(heightMeasureSpec) : naturalHeight;
+			setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), height);
+		}
+	}
+
+	private static class ResizableItemAdapter extends TestAdapter {
+		@Override
+		public ItemViewHolder onCreateItemViewHolder(ViewGroup parent, int itemUserType) {
+			View view = new ResizableView(parent.getContext());
+			view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+			return new ItemViewHolder(view);
+		}
+	}
+
+	@Test
+	public void linear_selectionToggleKeepsMeasuredSize() {
+		checkSelectionToggleKeepsMeasuredSize(new StickyHeaderLayoutManager());
+	}
+
+	@Test
+	public void staggeredGrid_selectionToggleKeepsMeasuredSizeAndLanes() {
+		checkSelectionToggleKeepsMeasuredSize(new StickyHeaderStaggeredGridLayoutManager(2));
+	}
+
+	private void checkSelectionToggleKeepsMeasuredSize(final StickyHeaderLayoutManager layoutManager) {
+		final int[] failure = new int[1];
+		InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				failure[0] = toggleSelectionAndCountMovedItems(layoutManager);
+			}
+		});
+
+		assertEquals("items resized or moved by a selection toggle", 0, failure[0]);
+	}
+
+	/**
+	 * @return the number of laid out items whose position or size changed across the selection toggle
+	 */
+	private static int toggleSelectionAndCountMovedItems(StickyHeaderLayoutManager layoutManager) {
+		ResizableItemAdapter adapter = new ResizableItemAdapter();
+		for (int s = 0; s < 3; s++) {
+			adapter.addSection(10, true, false);
+		}
+
+		layoutManager.setMeasuredSizeCacheEnabled(true);
+
+		RecyclerView recyclerView = new RecyclerView(InstrumentationRegistry.getTargetContext());
+		recyclerView.setItemAnimator(null);
+		recyclerView.setLayoutManager(layoutManager);
+		recyclerView.setAdapter(adapter);
+		layout(recyclerView);
+
+		int itemCount = adapter.getItemCount();
+		int[] tops = new int[itemCount];
+		int[] heights = new int[itemCount];
+		for (int p = 0; p < itemCount; p++) {
+			View view = layoutManager.findViewByPosition(p);
+			tops[p] = view != null ? view.getTop() : -1;
+			heights[p] = view != null ? view.getHeight() : -1;
+		}
+
+		// the item's content now measures taller, but only its selection is rebound
+		int adapterPosition = adapter.getAdapterPositionForSectionItem(0, 2);
+		ResizableView itemView = (ResizableView) layoutManager.findViewByPosition(adapterPosition);
+		itemView.naturalHeight = 2 * TestAdapter.ITEM_HEIGHT;
+		itemView.requestLayout();
+
+		adapter.setSectionItemSelected(0, 2, true);
+		layout(recyclerView);
+
+		int changed = 0;
+		for (int p = 0; p < itemCount; p++) {
+			View view = layoutManager.findViewByPosition(p);
+			if (adapter.getItemViewBaseType(p) == SectioningAdapter.TYPE_ITEM && tops[p] >= 0
+					&& (view == null || view.getTop() != tops[p] || view.getHeight() != heights[p])) {
+				changed++;
+			}
+		}
+
+		return changed;
+	}
+
+	private static void layout(RecyclerView recyclerView) {
+		recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+				View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+		recyclerView.layout(0, 0, WIDTH, HEIGHT);
+	}
+}
@@ -0,0 +1,80 @@
+package org.zakariya.stickyheaders;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+
+/**
+ * A SectioningAdapter over a mutable list of section shapes. Tests change the shapes, then
+ * call the matching notify method. Headers, items and footers are plain views of fixed height.
+ */
+class TestAdapter extends SectioningAdapter {
+
+	static final int HEADER_HEIGHT = 60;
+	static final int ITEM_HEIGHT = 40;
+	static final int FOOTER_HEIGHT = 30;
+
+	static class Section {
+		int numberOfItems;
+		boolean hasHeader;
+		boolean hasFooter;
+
+		Section(int numberOfItems, boolean hasHeader, boolean hasFooter) {
+			this.numberOfItems = numberOfItems;
+			this.hasHeader = hasHeader;
+			this.hasFooter = hasFooter;
+		}
+	}
+
+	ArrayList<Section> sections = new ArrayList<>();
+
+	Section addSection(int numberOfItems, boolean hasHeader, boolean hasFooter) {
+		Section section = new Section(numberOfItems, hasHeader, hasFooter);
+		sections.add(section);
+		return section;
+	}
+
+	@Override
+	public int getNumberOfSections() {
+		return sections.size();
+	}
+
+	@Override
+	public int getNumberOfItemsInSection(int sectionIndex) {
+		return sections.get(sectionIndex).numberOfItems;
+	}
+
+	@Override
+	public boolean doesSectionHaveHeader(int sectionIndex) {
+		return sections.get(sectionIndex).hasHeader;
+	}
+
+	@Override
+	public boolean doesSectionHaveFooter(int sectionIndex) {
+		return sections.get(sectionIndex).hasFooter;
+	}
+
+	@Override
+	public ItemViewHolder onCreateItemViewHolder(ViewGroup parent, int itemUserType) {
+		return new ItemViewHolder(createView(parent, ITEM_HEIGHT));
+	}
+
+	@Override
+	public HeaderViewHolder onCreateHeaderViewHolder(ViewGroup parent, int headerUserType) {
+		return new HeaderViewHolder(createView(parent, HEADER_HEIGHT));
+	}
+
+	@Override
+	public FooterViewHolder onCreateFooterViewHolder(ViewGroup parent, int footerUserType) {
+		return new FooterViewHolder(createView(parent, FOOTER_HEIGHT));
+	}
+
+	View createView(ViewGroup parent, int height) {
+		View view = new View(parent.getContext());
+		view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height));
+		return view;
+	}
+}
@@ -0,0 +1,204 @@
+package org.zakariya.stickyheaders;
+
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks how UpdateBatch merges queued updates, by dispatching the batch to an adapter and recording the
+ * notifications its observers receive. Runs on a device since adapter observers need the Android runtime.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UpdateBatchTest {
+
+	private static class EmptyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+		@Override
+		public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+			return null;
+		}
+
+		@Override
+		public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+		}
+
+		@Override
+		public int getItemCount() {
+			return 0;
+		}
+	}
+
+	private static class RecordingObserver extends RecyclerView.AdapterDataObserver {
+		List<String> notifications = new ArrayList<>();
+
+		@Override
+		public void onChanged() {
+			notifications.add("data set changed");
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			notifications.add((payload == SectioningAdapter.SELECTION_CHANGED ? "selection change " : "change ") + positionStart + " " + itemCount);
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			notifications.add("insert " + positionStart + " " + itemCount);
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			notifications.add("remove " + positionStart + " " + itemCount);
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			notifications.add("move " + fromPosition + " " + toPosition);
+		}
+	}
+
+	private UpdateBatch batch;
+	private EmptyAdapter adapter;
+	private RecordingObserver observer;
+
+	@Before
+	public void setUp() {
+		batch = new UpdateBatch();
+		adapter = new EmptyAdapter();
+		observer = new RecordingObserver();
+		adapter.registerAdapterDataObserver(observer);
+	}
+
+	@Test
+	public void insert_atSuccessivePositionsMerges() {
+		batch.add(UpdateBatch.INSERT, 10, 1);
+		batch.add(UpdateBatch.INSERT, 11, 1);
+		batch.add(UpdateBatch.INSERT, 12, 2);
+		assertDispatches("insert 10 4");
+	}
+
+	@Test
+	public void insert_withinOrAtStartOfLastInsertMerges() {
+		batch.add(UpdateBatch.INSERT, 10, 3);
+		batch.add(UpdateBatch.INSERT, 11, 1);
+		batch.add(UpdateBatch.INSERT, 10, 1);
+		assertDispatches("insert 10 5");
+	}
+
+	@Test
+	public void insert_pastLastInsertDoesNotMerge() {
+		batch.add(UpdateBatch.INSERT, 10, 2);
+		batch.add(UpdateBatch.INSERT, 13, 1);
+		batch.add(UpdateBatch.INSERT, 9, 1);
+		assertDispatches("insert 10 2", "insert 13 1", "insert 9 1");
+	}
+
+	@Test
+	public void remove_atSamePositionMerges() {
+		// removing front to back, each removal slides the next item into the hole
+		batch.add(UpdateBatch.REMOVE, 5, 1);
+		batch.add(UpdateBatch.REMOVE, 5, 2);
+		assertDispatches("remove 5 3");
+	}
+
+	@Test
+	public void remove_immediatelyBeforeMerges() {
+		// removing back to front
+		batch.add(UpdateBatch.REMOVE, 8, 1);
+		batch.add(UpdateBatch.REMOVE, 7, 1);
+		batch.add(UpdateBatch.REMOVE, 5, 2);
+		assertDispatches("remove 5 4");
+	}
+
+	@Test
+	public void remove_elsewhereDoesNotMerge() {
+		batch.add(UpdateBatch.REMOVE, 5, 1);
+		batch.add(UpdateBatch.REMOVE, 6, 1);
+		assertDispatches("remove 5 1", "remove 6 1");
+	}
+
+	@Test
+	public void change_overlappingOrAdjacentRangesBecomeUnion() {
+		batch.add(UpdateBatch.CHANGE, 10, 5);
+		batch.add(UpdateBatch.CHANGE, 12, 6);
+		batch.add(UpdateBatch.CHANGE, 7, 3);
+		batch.add(UpdateBatch.CHANGE, 19, 1);
+		assertDispatches("change 7 11", "change 19 1");
+	}
+
+	@Test
+	public void selectionChange_mergesWithSelectionChangeOnly() {
+		batch.add(UpdateBatch.SELECTION_CHANGE, 0, 2);
+		batch.add(UpdateBatch.SELECTION_CHANGE, 2, 2);
+		batch.add(UpdateBatch.CHANGE, 4, 1);
+		batch.add(UpdateBatch.SELECTION_CHANGE, 5, 1);
+		assertDispatches("selection change 0 4", "change 4 1", "selection change 5 1");
+	}
+
+	@Test
+	public void differentTypesDoNotMerge() {
+		batch.add(UpdateBatch.INSERT, 3, 1);
+		batch.add(UpdateBatch.REMOVE, 3, 1);
+		batch.add(UpdateBatch.INSERT, 3, 1);
+		assertDispatches("insert 3 1", "remove 3 1", "insert 3 1");
+	}
+
+	@Test
+	public void move_neverMerges() {
+		batch.add(UpdateBatch.MOVE, 1, 2);
+		batch.add(UpdateBatch.MOVE, 2, 3);
+		assertDispatches("move 1 2", "move 2 3");
+	}
+
+	@Test
+	public void emptyRangesAreIgnored() {
+		batch.add(UpdateBatch.INSERT, 3, 0);
+		batch.add(UpdateBatch.CHANGE, 3, -1);
+		assertEquals(true, batch.isEmpty());
+		assertDispatches();
+	}
+
+	@Test
+	public void dataSetChanged_supersedesOtherUpdates() {
+		batch.add(UpdateBatch.INSERT, 3, 1);
+		batch.addDataSetChanged();
+		batch.add(UpdateBatch.REMOVE, 0, 1);
+		assertDispatches("data set changed");
+	}
+
+	@Test
+	public void dispatch_resetsBatch() {
+		batch.add(UpdateBatch.INSERT, 3, 1);
+		batch.dispatch(adapter);
+		assertEquals(true, batch.isEmpty());
+
+		observer.notifications.clear();
+		batch.add(UpdateBatch.INSERT, 4, 1);
+		assertDispatches("insert 4 1");
+	}
+
+	@Test
+	public void manyUpdatesAreAllDispatched() {
+		for (int i = 0; i < 100; i++) {
+			batch.add(UpdateBatch.MOVE, i, i + 1);
+		}
+		batch.dispatch(adapter);
+		assertEquals(100, observer.notifications.size());
+		assertEquals("move 99 100", observer.notifications.get(99));
+	}
+
+	private void assertDispatches(String... expected) {
+		batch.dispatch(adapter);
+		assertEquals(Arrays.asList(expected), observer.notifications);
+	}
+}
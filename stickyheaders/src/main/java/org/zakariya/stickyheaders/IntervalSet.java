@@ -0,0 +1,282 @@
+package org.zakariya.stickyheaders;
+
+/**
+ * IntervalSet
+ * A set of non-negative ints stored as sorted, disjoint, non-adjacent runs [start, end). Memory is
+ * proportional to the number of runs rather than the number of values, so adding or removing a range
+ * of any length is O(log R + K) for R runs, K of which are merged or split, and size() is O(1).
+ * Values can be shifted in place to follow insertions and removals, without rebuilding the set.
+ * Used by SectioningAdapter to store the selected items of a section.
+ * <p/>
+ * Runs are stored in a gap buffer: the runs before the gap at the start of the arrays, the runs after it at
+ * the end. The runs after the gap share a lazy offset, so shifting them all is O(1) once the gap is moved to
+ * the shift's position, and moving the gap costs only the number of runs it passes over. Edits near the
+ * previous edit are cheap, so walking the set in either direction, e.g., deleting selected items front to
+ * back or back to front, is linear overall rather than quadratic.
+ */
+class IntervalSet {
+
+	private int[] starts = new int[4];
+	private int[] ends = new int[4];
+	private int runCount;
+	private int size;
+
+	// runs [0, gapStart) are stored at the same indices; the remaining runs at [gapEnd, capacity)
+	private int gapStart;
+	private int gapEnd = 4;
+
+	// added to the stored bounds of the runs after the gap
+	private int tailDelta;
+
+	/**
+	 * @return the number of values in the set
+	 */
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int getRunCount() {
+		return runCount;
+	}
+
+	/**
+	 * @param run index of a run, from 0 to getRunCount() - 1
+	 * @return the first value of the run
+	 */
+	int getRunStart(int run) {
+		return run < gapStart ? starts[run] : starts[run - gapStart + gapEnd] + tailDelta;
+	}
+
+	/**
+	 * @param run index of a run, from 0 to getRunCount() - 1
+	 * @return one past the last value of the run
+	 */
+	int getRunEnd(int run) {
+		return run < gapStart ? ends[run] : ends[run - gapStart + gapEnd] + tailDelta;
+	}
+
+	boolean contains(int value) {
+		int run = firstRunEndingAfter(value);
+		return run < runCount && getRunStart(run) <= value;
+	}
+
+	void clear() {
+		runCount = 0;
+		size = 0;
+		gapStart = 0;
+		gapEnd = starts.length;
+		tailDelta = 0;
+	}
+
+	/**
+	 * Add the values [from, to) to the set
+	 *
+	 * @return the number of values which weren't already in the set
+	 */
+	int add(int from, int to) {
+		if (from >= to) {
+			return 0;
+		}
+
+		// runs overlapping or adjacent to [from, to) merge with it
+		int first = firstRunEndingAfter(from - 1);
+		int last = firstRunStartingAfter(to) - 1;
+
+		int start = from;
+		int end = to;
+		int merged = 0;
+		if (first <= last) {
+			start = Math.min(start, getRunStart(first));
+			end = Math.max(end, getRunEnd(last));
+			for (int i = first; i <= last; i++) {
+				merged += getRunEnd(i) - getRunStart(i);
+			}
+		}
+
+		replaceRuns(first, last, 1);
+		starts[first] = start;
+		ends[first] = end;
+
+		int added = end - start - merged;
+		size += added;
+		return added;
+	}
+
+	/**
+	 * Remove the values [from, to) from the set
+	 *
+	 * @return the number of values which were in the set
+	 */
+	int remove(int from, int to) {
+		if (from >= to) {
+			return 0;
+		}
+
+		int first = firstRunEndingAfter(from);
+		int last = firstRunStartingAfter(to - 1) - 1;
+		if (first > last) {
+			return 0;
+		}
+
+		int removed = 0;
+		for (int i = first; i <= last; i++) {
+			removed += getRunEnd(i) - getRunStart(i);
+		}
+
+		// the first and last runs may extend past [from, to), leaving a remainder on either side
+		int leftStart = getRunStart(first);
+		int rightEnd = getRunEnd(last);
+		boolean left = leftStart < from;
+		boolean right = rightEnd > to;
+
+		replaceRuns(first, last, (left ? 1 : 0) + (right ? 1 : 0));
+
+		int run = first;
+		if (left) {
+			starts[run] = leftStart;
+			ends[run] = from;
+			removed -= from - leftStart;
+			run++;
+		}
+
+		if (right) {
+			starts[run] = to;
+			ends[run] = rightEnd;
+			removed -= rightEnd - to;
+		}
+
+		size -= removed;
+		return removed;
+	}
+
+	/**
+	 * Shift the values at or after position by delta, in place. If delta is positive, a gap of delta values is
+	 * opened at position, splitting any run spanning it. If negative, the values [position, position - delta) are
+	 * first removed. This is O(log R) to find position, plus moving the gap buffer's gap there from the previous
+	 * edit; the runs after position are then shifted at once through the lazy offset.
+	 */
+	void shift(int position, int delta) {
+		if (delta == 0 || runCount == 0) {
+			return;
+		}
+
+		if (delta < 0) {
+			remove(position, position - delta);
+		}
+
+		int run = firstRunEndingAfter(position);
+		if (run == runCount) {
+			return;
+		}
+
+		if (getRunStart(run) < position) {
+			// only possible when opening a gap; split the run spanning position
+			int end = getRunEnd(run);
+			replaceRuns(run + 1, run, 1);
+			ends[run] = position;
+			starts[run + 1] = position;
+			ends[run + 1] = end;
+			run++;
+		}
+
+		// the runs from run on are after the gap, so shift them all through the lazy offset
+		moveGap(run);
+		tailDelta += delta;
+
+		// closing a gap may bring the runs either side of it together
+		if (delta < 0 && run > 0 && getRunEnd(run - 1) == getRunStart(run)) {
+			int end = getRunEnd(run);
+			replaceRuns(run, run, 0);
+			ends[run - 1] = end;
+		}
+	}
+
+	/**
+	 * @return index of the first run whose end is greater than value, or runCount if none
+	 */
+	private int firstRunEndingAfter(int value) {
+		int low = 0;
+		int high = runCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getRunEnd(mid) > value) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return index of the first run whose start is greater than value, or runCount if none
+	 */
+	private int firstRunStartingAfter(int value) {
+		int low = 0;
+		int high = runCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getRunStart(mid) > value) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Replace the runs first through last, inclusive, with replacementCount runs to be assigned by the caller.
+	 * If last is first - 1, the new runs are inserted before first. The gap is moved to follow the new runs,
+	 * so the runs before it, including the new ones, can be assigned directly by index.
+	 */
+	private void replaceRuns(int first, int last, int replacementCount) {
+		moveGap(last + 1);
+		gapStart = first;
+
+		if (gapEnd - gapStart < replacementCount) {
+			int tail = starts.length - gapEnd;
+			int capacity = Math.max(gapStart + replacementCount + tail, starts.length * 2);
+			int[] newStarts = new int[capacity];
+			int[] newEnds = new int[capacity];
+			System.arraycopy(starts, 0, newStarts, 0, gapStart);
+			System.arraycopy(ends, 0, newEnds, 0, gapStart);
+			System.arraycopy(starts, gapEnd, newStarts, capacity - tail, tail);
+			System.arraycopy(ends, gapEnd, newEnds, capacity - tail, tail);
+			starts = newStarts;
+			ends = newEnds;
+			gapEnd = capacity - tail;
+		}
+
+		gapStart += replacementCount;
+		runCount = gapStart + starts.length - gapEnd;
+	}
+
+	/**
+	 * Move the gap so that it follows the first index runs
+	 */
+	private void moveGap(int index) {
+		while (gapStart > index) {
+			gapStart--;
+			gapEnd--;
+			starts[gapEnd] = starts[gapStart] - tailDelta;
+			ends[gapEnd] = ends[gapStart] - tailDelta;
+		}
+
+		while (gapStart < index) {
+			starts[gapStart] = starts[gapEnd] + tailDelta;
+			ends[gapStart] = ends[gapEnd] + tailDelta;
+			gapStart++;
+			gapEnd++;
+		}
+
+		if (gapEnd == starts.length) {
+			// no runs after the gap, so the offset can start afresh
+			tailDelta = 0;
+		}
+	}
+}
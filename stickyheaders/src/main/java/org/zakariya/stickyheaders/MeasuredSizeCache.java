@@ -0,0 +1,120 @@
+package org.zakariya.stickyheaders;
+
+import java.util.Arrays;
+
+/**
+ * MeasuredSizeCache
+ * Records the measured size of item views, keyed by adapter position or stable id, so StickyHeaderLayoutManager
+ * can avoid full measure passes when re-vending views whose content hasn't changed. Each entry also records
+ * the view type and the cross axis space the view was measured in, and is only returned if both still match.
+ * <p/>
+ * Entries are kept in primitive arrays sorted by key, so lookups are O(log n) and ranges of positions
+ * can be invalidated in one pass.
+ *
+ * @see StickyHeaderLayoutManager#setMeasuredSizeCacheEnabled(boolean)
+ */
+class MeasuredSizeCache {
+
+	static final long NO_SIZE = -1;
+
+	private long[] keys = new long[16];
+	private int[] viewTypes = new int[16];
+	private int[] availableSpaces = new int[16];
+	private long[] sizes = new long[16];
+	private int size;
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param key            the position or stable id of the item
+	 * @param viewType       the item's view type
+	 * @param availableSpace the cross axis space the item is being measured in
+	 * @return the item's size, with the width in the high 32 bits and the height in the low 32 bits, or NO_SIZE
+	 */
+	long get(long key, int viewType, int availableSpace) {
+		int i = Arrays.binarySearch(keys, 0, size, key);
+		if (i < 0 || viewTypes[i] != viewType || availableSpaces[i] != availableSpace) {
+			return NO_SIZE;
+		}
+		return sizes[i];
+	}
+
+	void put(long key, int viewType, int availableSpace, int width, int height) {
+		int i = Arrays.binarySearch(keys, 0, size, key);
+		if (i < 0) {
+			i = ~i;
+			if (size == keys.length) {
+				int capacity = size * 2;
+				keys = Arrays.copyOf(keys, capacity);
+				viewTypes = Arrays.copyOf(viewTypes, capacity);
+				availableSpaces = Arrays.copyOf(availableSpaces, capacity);
+				sizes = Arrays.copyOf(sizes, capacity);
+			}
+
+			int n = size - i;
+			System.arraycopy(keys, i, keys, i + 1, n);
+			System.arraycopy(viewTypes, i, viewTypes, i + 1, n);
+			System.arraycopy(availableSpaces, i, availableSpaces, i + 1, n);
+			System.arraycopy(sizes, i, sizes, i + 1, n);
+			size++;
+		}
+
+		keys[i] = key;
+		viewTypes[i] = viewType;
+		availableSpaces[i] = availableSpace;
+		sizes[i] = ((long) width << 32) | (height & 0xFFFFFFFFL);
+	}
+
+	void remove(long key) {
+		int i = Arrays.binarySearch(keys, 0, size, key);
+		if (i >= 0) {
+			removeRange(i, i + 1);
+		}
+	}
+
+	/**
+	 * Remove the entries with keys from fromKey (inclusive) to toKey (exclusive)
+	 */
+	void removeKeys(long fromKey, long toKey) {
+		removeRange(ceilingIndex(fromKey), ceilingIndex(toKey));
+	}
+
+	/**
+	 * Remove the entries with keys from fromKey (inclusive) on
+	 */
+	void removeKeysFrom(long fromKey) {
+		size = Math.min(size, ceilingIndex(fromKey));
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	static int getWidth(long size) {
+		return (int) (size >>> 32);
+	}
+
+	static int getHeight(long size) {
+		return (int) size;
+	}
+
+	private int ceilingIndex(long key) {
+		int i = Arrays.binarySearch(keys, 0, size, key);
+		return i < 0 ? ~i : i;
+	}
+
+	private void removeRange(int from, int to) {
+		if (to <= from) {
+			return;
+		}
+
+		int n = size - to;
+		System.arraycopy(keys, to, keys, from, n);
+		System.arraycopy(viewTypes, to, viewTypes, from, n);
+		System.arraycopy(availableSpaces, to, availableSpaces, from, n);
+		System.arraycopy(sizes, to, sizes, from, n);
+		size -= to - from;
+	}
+}
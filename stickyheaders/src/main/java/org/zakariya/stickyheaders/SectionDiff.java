@@ -0,0 +1,297 @@
+package org.zakariya.stickyheaders;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+/**
+ * SectionDiff
+ * Computes the difference between the sectioned data set currently presented by a SectioningAdapter and
+ * a new one described by a SectioningAdapter.SectionDiffCallback. Sections are first matched to each other
+ * by identity, so collapse and selection state can follow a section to its new index; then the flattened
+ * lists of headers, ghost headers, items and footers are diffed so the result can be dispatched as adapter
+ * position notifications.
+ * <p/>
+ * The old structure is snapshotted on the main thread by the constructor. calculate() may then be run on
+ * any thread, and the results are read back on the main thread.
+ */
+class SectionDiff {
+
+	private static final int LOCAL_HEADER = -1;
+	private static final int LOCAL_GHOST_HEADER = -2;
+	private static final int LOCAL_FOOTER = -3;
+
+	private final SectioningAdapter.SectionDiffCallback callback;
+
+	// old structure, snapshotted from the adapter's section index
+	private final int oldNumberOfSections;
+	private final int[] oldNumberOfItems;
+	private final boolean[] oldHasHeader;
+	private final boolean[] oldHasFooter;
+	private final boolean[] oldCollapsed;
+
+	// new structure, read from the callback by calculate()
+	private int newNumberOfSections;
+	private int[] newNumberOfItems;
+	private boolean[] newHasHeader;
+	private boolean[] newHasFooter;
+	private boolean[] newCollapsed;
+
+	// section identity mapping
+	private int[] newSectionsByOldSection;
+	private int[] oldSectionsByNewSection;
+
+	// flattened adapter position lists; local is the item index, or one of the LOCAL_* constants
+	private int[] oldSectionStarts;
+	private int[] oldPositionSections;
+	private int[] oldPositionLocals;
+	private int[] newPositionSections;
+	private int[] newPositionLocals;
+
+	private DiffUtil.DiffResult result;
+
+	SectionDiff(SectioningAdapter adapter, SectionIndex sections, SectioningAdapter.SectionDiffCallback callback) {
+		this.callback = callback;
+
+		oldNumberOfSections = sections.getNumberOfSections();
+		oldNumberOfItems = new int[oldNumberOfSections];
+		oldHasHeader = new boolean[oldNumberOfSections];
+		oldHasFooter = new boolean[oldNumberOfSections];
+		oldCollapsed = new boolean[oldNumberOfSections];
+
+		for (int s = 0; s < oldNumberOfSections; s++) {
+			oldNumberOfItems[s] = sections.getNumberOfItems(s);
+			oldHasHeader[s] = sections.hasHeader(s);
+			oldHasFooter[s] = sections.hasFooter(s);
+			oldCollapsed[s] = adapter.isSectionCollapsed(s);
+		}
+	}
+
+	/**
+	 * Query the new structure from the callback and compute the diff. Safe to run off the main thread.
+	 */
+	void calculate() {
+		newNumberOfSections = callback.getNewSectionCount();
+		newNumberOfItems = new int[newNumberOfSections];
+		newHasHeader = new boolean[newNumberOfSections];
+		newHasFooter = new boolean[newNumberOfSections];
+		newCollapsed = new boolean[newNumberOfSections];
+
+		for (int s = 0; s < newNumberOfSections; s++) {
+			newNumberOfItems[s] = callback.getNewSectionItemCount(s);
+			newHasHeader[s] = callback.doesNewSectionHaveHeader(s);
+			newHasFooter[s] = callback.doesNewSectionHaveFooter(s);
+		}
+
+		matchSections();
+
+		// collapsed sections stay collapsed at their new index
+		for (int s = 0; s < newNumberOfSections; s++) {
+			int oldSection = oldSectionsByNewSection[s];
+			newCollapsed[s] = oldSection != DiffUtil.DiffResult.NO_POSITION && oldCollapsed[oldSection];
+		}
+
+		oldSectionStarts = new int[oldNumberOfSections];
+		int oldLength = countPositions(oldNumberOfSections, oldNumberOfItems, oldHasHeader, oldHasFooter, oldCollapsed, oldSectionStarts);
+		oldPositionSections = new int[oldLength];
+		oldPositionLocals = new int[oldLength];
+		flatten(oldNumberOfSections, oldNumberOfItems, oldHasHeader, oldHasFooter, oldCollapsed, oldPositionSections, oldPositionLocals);
+
+		int newLength = countPositions(newNumberOfSections, newNumberOfItems, newHasHeader, newHasFooter, newCollapsed, null);
+		newPositionSections = new int[newLength];
+		newPositionLocals = new int[newLength];
+		flatten(newNumberOfSections, newNumberOfItems, newHasHeader, newHasFooter, newCollapsed, newPositionSections, newPositionLocals);
+
+		result = DiffUtil.calculateDiff(new PositionCallback(), true);
+	}
+
+	/**
+	 * @param oldSectionIndex index of a section in the old data set
+	 * @return the index of the same section in the new data set, or SectioningAdapter.NO_POSITION if it was removed
+	 */
+	int getNewSectionIndex(int oldSectionIndex) {
+		return newSectionsByOldSection[oldSectionIndex];
+	}
+
+	/**
+	 * @param newSectionIndex index of a section in the new data set
+	 * @return true if that section is collapsed in the new data set
+	 */
+	boolean isNewSectionCollapsed(int newSectionIndex) {
+		return newCollapsed[newSectionIndex];
+	}
+
+	/**
+	 * @param newSectionIndex index of a section in the new data set
+	 * @return true if that section has a footer in the new data set
+	 */
+	boolean doesNewSectionHaveFooter(int newSectionIndex) {
+		return newHasFooter[newSectionIndex];
+	}
+
+	/**
+	 * Find where an item of the old data set ended up in the new data set. Items in collapsed sections aren't
+	 * part of the diff; they keep their index if their section survived and is still long enough.
+	 *
+	 * @param oldSectionIndex index of the item's section in the old data set
+	 * @param oldItemIndex    index of the item in that section
+	 * @return the item's section index in the high 32 bits and its index in that section in the low 32 bits, or -1 if it was removed
+	 */
+	long convertOldItemToNew(int oldSectionIndex, int oldItemIndex) {
+		if (oldCollapsed[oldSectionIndex]) {
+			int newSection = newSectionsByOldSection[oldSectionIndex];
+			if (newSection == DiffUtil.DiffResult.NO_POSITION || oldItemIndex >= newNumberOfItems[newSection]) {
+				return -1;
+			}
+			return pack(newSection, oldItemIndex);
+		}
+
+		int oldPosition = oldSectionStarts[oldSectionIndex] + oldItemIndex;
+		if (oldHasHeader[oldSectionIndex]) {
+			oldPosition += 2;
+		}
+
+		int newPosition = result.convertOldPositionToNew(oldPosition);
+		if (newPosition == DiffUtil.DiffResult.NO_POSITION || newPositionLocals[newPosition] < 0) {
+			return -1;
+		}
+
+		return pack(newPositionSections[newPosition], newPositionLocals[newPosition]);
+	}
+
+	/**
+	 * Dispatch the adapter position updates which turn the old data set into the new one
+	 *
+	 * @param updateCallback the callback to receive the updates
+	 */
+	void dispatchUpdatesTo(ListUpdateCallback updateCallback) {
+		result.dispatchUpdatesTo(updateCallback);
+	}
+
+	private static long pack(int sectionIndex, int itemIndex) {
+		return ((long) sectionIndex << 32) | (itemIndex & 0xFFFFFFFFL);
+	}
+
+	private void matchSections() {
+		DiffUtil.DiffResult sectionResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+			@Override
+			public int getOldListSize() {
+				return oldNumberOfSections;
+			}
+
+			@Override
+			public int getNewListSize() {
+				return newNumberOfSections;
+			}
+
+			@Override
+			public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+				return callback.areSectionsTheSame(oldItemPosition, newItemPosition);
+			}
+
+			@Override
+			public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+				// section contents are compared per header and footer position by the flattened diff
+				return true;
+			}
+		}, true);
+
+		newSectionsByOldSection = new int[oldNumberOfSections];
+		oldSectionsByNewSection = new int[newNumberOfSections];
+		for (int s = 0; s < oldNumberOfSections; s++) {
+			newSectionsByOldSection[s] = sectionResult.convertOldPositionToNew(s);
+		}
+		for (int s = 0; s < newNumberOfSections; s++) {
+			oldSectionsByNewSection[s] = sectionResult.convertNewPositionToOld(s);
+		}
+	}
+
+	private static int countPositions(int numberOfSections, int[] numberOfItems, boolean[] hasHeader, boolean[] hasFooter, boolean[] collapsed, int[] sectionStarts) {
+		int length = 0;
+		for (int s = 0; s < numberOfSections; s++) {
+			if (sectionStarts != null) {
+				sectionStarts[s] = length;
+			}
+			if (hasHeader[s]) {
+				length += 2;
+			}
+			if (!collapsed[s]) {
+				length += numberOfItems[s];
+			}
+			if (hasFooter[s]) {
+				length++;
+			}
+		}
+		return length;
+	}
+
+	private static void flatten(int numberOfSections, int[] numberOfItems, boolean[] hasHeader, boolean[] hasFooter, boolean[] collapsed, int[] positionSections, int[] positionLocals) {
+		int p = 0;
+		for (int s = 0; s < numberOfSections; s++) {
+			if (hasHeader[s]) {
+				positionSections[p] = s;
+				positionLocals[p++] = LOCAL_HEADER;
+				positionSections[p] = s;
+				positionLocals[p++] = LOCAL_GHOST_HEADER;
+			}
+			if (!collapsed[s]) {
+				for (int i = 0, n = numberOfItems[s]; i < n; i++) {
+					positionSections[p] = s;
+					positionLocals[p++] = i;
+				}
+			}
+			if (hasFooter[s]) {
+				positionSections[p] = s;
+				positionLocals[p++] = LOCAL_FOOTER;
+			}
+		}
+	}
+
+	/**
+	 * Compares the flattened old and new adapter positions. Headers, ghost headers and footers are the same
+	 * if their sections are; items are compared by the callback and may move between sections.
+	 */
+	private class PositionCallback extends DiffUtil.Callback {
+
+		@Override
+		public int getOldListSize() {
+			return oldPositionSections.length;
+		}
+
+		@Override
+		public int getNewListSize() {
+			return newPositionSections.length;
+		}
+
+		@Override
+		public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+			int oldLocal = oldPositionLocals[oldItemPosition];
+			int newLocal = newPositionLocals[newItemPosition];
+			int oldSection = oldPositionSections[oldItemPosition];
+			int newSection = newPositionSections[newItemPosition];
+
+			if (oldLocal < 0 || newLocal < 0) {
+				return oldLocal == newLocal && newSectionsByOldSection[oldSection] == newSection;
+			}
+
+			return callback.areItemsTheSame(oldSection, oldLocal, newSection, newLocal);
+		}
+
+		@Override
+		public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+			int oldLocal = oldPositionLocals[oldItemPosition];
+			int newLocal = newPositionLocals[newItemPosition];
+			int oldSection = oldPositionSections[oldItemPosition];
+			int newSection = newPositionSections[newItemPosition];
+
+			switch (oldLocal) {
+				case LOCAL_HEADER:
+				case LOCAL_FOOTER:
+					return callback.areSectionContentsTheSame(oldSection, newSection);
+				case LOCAL_GHOST_HEADER:
+					return true;
+				default:
+					return callback.areItemContentsTheSame(oldSection, oldLocal, newSection, newLocal);
+			}
+		}
+	}
+}
@@ -0,0 +1,463 @@
+package org.zakariya.stickyheaders;
+
+import java.util.Arrays;
+
+/**
+ * SectionIndex
+ * Maps the sections of a SectioningAdapter to adapter positions, and adapter positions back to sections.
+ * The index can be built from scratch by querying the adapter's data source methods, or it can be patched
+ * in place when a single section changes. Patching only re-queries the affected section and shifts the
+ * adapter positions of the sections which follow it.
+ * <p/>
+ * How adapter positions are resolved to sections depends on the PositionLookupStrategy.
+ * <p/>
+ * Section records are stored as parallel primitive arrays rather than an object per section. The arrays
+ * are grown geometrically and reused across rebuilds, so building the index doesn't allocate in steady state.
+ *
+ * @see SectioningAdapter.PositionLookupStrategy
+ */
+class SectionIndex {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final byte FLAG_HAS_HEADER = 1;
+	private static final byte FLAG_HAS_FOOTER = 1 << 1;
+
+	private SectioningAdapter.PositionLookupStrategy strategy;
+	private int numberOfSections;
+	private int totalNumberOfItems;
+
+	// section records, indexed by section
+	private int[] adapterPositions = new int[INITIAL_CAPACITY];  // adapterPosition of first item (the header) of each section. Not maintained for FENWICK_TREE
+	private int[] numberOfItems = new int[INITIAL_CAPACITY];     // number of items (not including header or footer)
+	private int[] lengths = new int[INITIAL_CAPACITY];           // total number of items in section including header and footer
+	private byte[] flags = new byte[INITIAL_CAPACITY];           // FLAG_HAS_HEADER | FLAG_HAS_FOOTER
+
+	// LOOKUP_TABLE: the section index for each adapter position
+	private int[] sectionIndicesByAdapterPosition = new int[0];
+
+	// FENWICK_TREE: 1-based binary indexed tree of section lengths
+	private int[] lengthTree = new int[0];
+
+	// the number of headers and footers in the sections before each section, built on demand
+	// and discarded whenever a section is inserted or removed or gains or loses a header or footer
+	private int[] headerCountsBefore = new int[0];
+	private int[] footerCountsBefore = new int[0];
+	private boolean headerAndFooterCountsValid;
+
+	SectionIndex(SectioningAdapter.PositionLookupStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	SectioningAdapter.PositionLookupStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Change the position lookup strategy. The index must be rebuilt afterwards.
+	 *
+	 * @param strategy the new strategy
+	 */
+	void setStrategy(SectioningAdapter.PositionLookupStrategy strategy) {
+		this.strategy = strategy;
+
+		// release storage used by other strategies
+		if (strategy != SectioningAdapter.PositionLookupStrategy.LOOKUP_TABLE) {
+			sectionIndicesByAdapterPosition = new int[0];
+		}
+		if (strategy != SectioningAdapter.PositionLookupStrategy.FENWICK_TREE) {
+			lengthTree = new int[0];
+		}
+	}
+
+	/**
+	 * Rebuild the index from scratch, querying every section of the adapter
+	 *
+	 * @param adapter the adapter whose data source methods describe the sections
+	 */
+	void build(SectioningAdapter adapter) {
+		headerAndFooterCountsValid = false;
+		numberOfSections = adapter.getNumberOfSections();
+		ensureSectionCapacity(numberOfSections, false);
+
+		int i = 0;
+		for (int s = 0; s < numberOfSections; s++) {
+			adapterPositions[s] = i;
+			query(adapter, s);
+			i += lengths[s];
+		}
+
+		totalNumberOfItems = i;
+
+		switch (strategy) {
+			case LOOKUP_TABLE:
+				ensureTableCapacity(totalNumberOfItems, false);
+				for (int s = 0; s < numberOfSections; s++) {
+					Arrays.fill(sectionIndicesByAdapterPosition, adapterPositions[s], adapterPositions[s] + lengths[s], s);
+				}
+				break;
+			case FENWICK_TREE:
+				buildLengthTree();
+				break;
+		}
+	}
+
+	/**
+	 * Re-query a single section whose items, footer or collapsed state changed, shifting the sections which follow it
+	 *
+	 * @param adapter      the adapter whose data source methods describe the sections
+	 * @param sectionIndex the index of the section which changed
+	 */
+	void updateSection(SectioningAdapter adapter, int sectionIndex) {
+		int oldLength = lengths[sectionIndex];
+		byte oldFlags = flags[sectionIndex];
+		query(adapter, sectionIndex);
+
+		if (flags[sectionIndex] != oldFlags) {
+			headerAndFooterCountsValid = false;
+		}
+
+		int delta = lengths[sectionIndex] - oldLength;
+		if (delta == 0) {
+			return;
+		}
+
+		if (strategy == SectioningAdapter.PositionLookupStrategy.LOOKUP_TABLE) {
+			int start = adapterPositions[sectionIndex];
+			int oldEnd = start + oldLength;
+			int newEnd = start + lengths[sectionIndex];
+			ensureTableCapacity(totalNumberOfItems + delta, true);
+			System.arraycopy(sectionIndicesByAdapterPosition, oldEnd, sectionIndicesByAdapterPosition, newEnd, totalNumberOfItems - oldEnd);
+			Arrays.fill(sectionIndicesByAdapterPosition, start, newEnd, sectionIndex);
+		}
+
+		totalNumberOfItems += delta;
+
+		if (strategy == SectioningAdapter.PositionLookupStrategy.FENWICK_TREE) {
+			addToLengthTree(sectionIndex, delta);
+		} else {
+			shiftSections(sectionIndex + 1, delta);
+		}
+	}
+
+	/**
+	 * Query and insert a new section, shifting the sections which follow it
+	 *
+	 * @param adapter      the adapter whose data source methods describe the sections
+	 * @param sectionIndex the index of the new section
+	 */
+	void insertSection(SectioningAdapter adapter, int sectionIndex) {
+		int start = sectionIndex < numberOfSections ? getAdapterPosition(sectionIndex) : totalNumberOfItems;
+		headerAndFooterCountsValid = false;
+
+		// open a gap in the section records
+		ensureSectionCapacity(numberOfSections + 1, true);
+		int tail = numberOfSections - sectionIndex;
+		System.arraycopy(adapterPositions, sectionIndex, adapterPositions, sectionIndex + 1, tail);
+		System.arraycopy(numberOfItems, sectionIndex, numberOfItems, sectionIndex + 1, tail);
+		System.arraycopy(lengths, sectionIndex, lengths, sectionIndex + 1, tail);
+		System.arraycopy(flags, sectionIndex, flags, sectionIndex + 1, tail);
+		numberOfSections++;
+
+		adapterPositions[sectionIndex] = start;
+		query(adapter, sectionIndex);
+		int length = lengths[sectionIndex];
+
+		if (strategy == SectioningAdapter.PositionLookupStrategy.LOOKUP_TABLE) {
+			int end = start + length;
+			ensureTableCapacity(totalNumberOfItems + length, true);
+			System.arraycopy(sectionIndicesByAdapterPosition, start, sectionIndicesByAdapterPosition, end, totalNumberOfItems - start);
+			Arrays.fill(sectionIndicesByAdapterPosition, start, end, sectionIndex);
+			for (int p = end, n = totalNumberOfItems + length; p < n; p++) {
+				sectionIndicesByAdapterPosition[p]++;
+			}
+		}
+
+		totalNumberOfItems += length;
+
+		if (strategy == SectioningAdapter.PositionLookupStrategy.FENWICK_TREE) {
+			buildLengthTree();
+		} else {
+			shiftSections(sectionIndex + 1, length);
+		}
+	}
+
+	/**
+	 * Remove a section, shifting the sections which follow it
+	 *
+	 * @param sectionIndex the index of the removed section
+	 */
+	void removeSection(int sectionIndex) {
+		int start = getAdapterPosition(sectionIndex);
+		int length = lengths[sectionIndex];
+		headerAndFooterCountsValid = false;
+
+		// close the gap in the section records
+		int tail = numberOfSections - sectionIndex - 1;
+		System.arraycopy(adapterPositions, sectionIndex + 1, adapterPositions, sectionIndex, tail);
+		System.arraycopy(numberOfItems, sectionIndex + 1, numberOfItems, sectionIndex, tail);
+		System.arraycopy(lengths, sectionIndex + 1, lengths, sectionIndex, tail);
+		System.arraycopy(flags, sectionIndex + 1, flags, sectionIndex, tail);
+		numberOfSections--;
+
+		if (strategy == SectioningAdapter.PositionLookupStrategy.LOOKUP_TABLE) {
+			int end = start + length;
+			System.arraycopy(sectionIndicesByAdapterPosition, end, sectionIndicesByAdapterPosition, start, totalNumberOfItems - end);
+			for (int p = start, n = totalNumberOfItems - length; p < n; p++) {
+				sectionIndicesByAdapterPosition[p]--;
+			}
+		}
+
+		totalNumberOfItems -= length;
+
+		if (strategy == SectioningAdapter.PositionLookupStrategy.FENWICK_TREE) {
+			buildLengthTree();
+		} else {
+			shiftSections(sectionIndex, -length);
+		}
+	}
+
+	int getNumberOfSections() {
+		return numberOfSections;
+	}
+
+	int getTotalNumberOfItems() {
+		return totalNumberOfItems;
+	}
+
+	int getSectionForAdapterPosition(int adapterPosition) {
+		switch (strategy) {
+			case BINARY_SEARCH: {
+				// find the last section starting at or before adapterPosition; this skips empty sections
+				int lo = 0;
+				int hi = numberOfSections - 1;
+				while (lo < hi) {
+					int mid = (lo + hi + 1) >>> 1;
+					if (adapterPositions[mid] <= adapterPosition) {
+						lo = mid;
+					} else {
+						hi = mid - 1;
+					}
+				}
+				return lo;
+			}
+
+			case FENWICK_TREE: {
+				// descend the tree counting the sections which end at or before adapterPosition
+				int n = numberOfSections;
+				int index = 0;
+				int remaining = adapterPosition;
+				for (int step = Integer.highestOneBit(Math.max(n, 1)); step > 0; step >>= 1) {
+					int next = index + step;
+					if (next <= n && lengthTree[next] <= remaining) {
+						index = next;
+						remaining -= lengthTree[next];
+					}
+				}
+				return index;
+			}
+
+			default:
+				return sectionIndicesByAdapterPosition[adapterPosition];
+		}
+	}
+
+	int getAdapterPosition(int sectionIndex) {
+		if (strategy == SectioningAdapter.PositionLookupStrategy.FENWICK_TREE) {
+			int sum = 0;
+			for (int i = sectionIndex; i > 0; i -= i & -i) {
+				sum += lengthTree[i];
+			}
+			return sum;
+		}
+
+		return adapterPositions[checkSectionIndex(sectionIndex)];
+	}
+
+	int getNumberOfItems(int sectionIndex) {
+		return numberOfItems[checkSectionIndex(sectionIndex)];
+	}
+
+	int getLength(int sectionIndex) {
+		return lengths[checkSectionIndex(sectionIndex)];
+	}
+
+	boolean hasHeader(int sectionIndex) {
+		return (flags[checkSectionIndex(sectionIndex)] & FLAG_HAS_HEADER) != 0;
+	}
+
+	boolean hasFooter(int sectionIndex) {
+		return (flags[checkSectionIndex(sectionIndex)] & FLAG_HAS_FOOTER) != 0;
+	}
+
+	/**
+	 * @param sectionIndex index of a section, or the number of sections
+	 * @return the number of sections before sectionIndex which have a header
+	 */
+	int getNumberOfHeadersBefore(int sectionIndex) {
+		ensureHeaderAndFooterCounts();
+		return headerCountsBefore[sectionIndex];
+	}
+
+	/**
+	 * @param sectionIndex index of a section, or the number of sections
+	 * @return the number of sections before sectionIndex which have a footer
+	 */
+	int getNumberOfFootersBefore(int sectionIndex) {
+		ensureHeaderAndFooterCounts();
+		return footerCountsBefore[sectionIndex];
+	}
+
+	/**
+	 * Compare this index against another, for verifying incremental updates against a full rebuild
+	 *
+	 * @param other the index to compare against
+	 * @return null if the two indices are equivalent, otherwise a description of the first difference found
+	 */
+	String findDifference(SectionIndex other) {
+		if (numberOfSections != other.numberOfSections) {
+			return "number of sections: " + numberOfSections + " expected: " + other.numberOfSections;
+		}
+
+		if (totalNumberOfItems != other.totalNumberOfItems) {
+			return "totalNumberOfItems: " + totalNumberOfItems + " expected: " + other.totalNumberOfItems;
+		}
+
+		for (int s = 0; s < numberOfSections; s++) {
+			int aPosition = getAdapterPosition(s);
+			int bPosition = other.getAdapterPosition(s);
+			if (aPosition != bPosition || numberOfItems[s] != other.numberOfItems[s] || lengths[s] != other.lengths[s] || flags[s] != other.flags[s]) {
+				return "section " + s + " adapterPosition: " + aPosition + " numberOfItems: " + numberOfItems[s] + " length: " + lengths[s] + " flags: " + flags[s]
+						+ " expected adapterPosition: " + bPosition + " numberOfItems: " + other.numberOfItems[s] + " length: " + other.lengths[s] + " flags: " + other.flags[s];
+			}
+		}
+
+		for (int p = 0; p < totalNumberOfItems; p++) {
+			int a = getSectionForAdapterPosition(p);
+			int b = other.getSectionForAdapterPosition(p);
+			if (a != b) {
+				return "section for adapterPosition " + p + ": " + a + " expected: " + b;
+			}
+		}
+
+		return null;
+	}
+
+	private void query(SectioningAdapter adapter, int sectionIndex) {
+		boolean hasHeader = adapter.doesSectionHaveHeader(sectionIndex);
+		boolean hasFooter = adapter.doesSectionHaveFooter(sectionIndex);
+		int items = adapter.getNumberOfItemsInSection(sectionIndex);
+		int length = adapter.isSectionCollapsed(sectionIndex) ? 0 : items;
+
+		if (hasHeader) {
+			length += 2; // room for header and ghostHeader
+		}
+		if (hasFooter) {
+			length++;
+		}
+
+		numberOfItems[sectionIndex] = items;
+		lengths[sectionIndex] = length;
+		flags[sectionIndex] = (byte) ((hasHeader ? FLAG_HAS_HEADER : 0) | (hasFooter ? FLAG_HAS_FOOTER : 0));
+	}
+
+	private int checkSectionIndex(int sectionIndex) {
+		// the record arrays are oversized, so catch reads past the last section
+		if (sectionIndex >= numberOfSections) {
+			throw new IndexOutOfBoundsException("sectionIndex " + sectionIndex + " >= number of sections (" + numberOfSections + ")");
+		}
+		return sectionIndex;
+	}
+
+	private void shiftSections(int fromSectionIndex, int delta) {
+		for (int s = fromSectionIndex; s < numberOfSections; s++) {
+			adapterPositions[s] += delta;
+		}
+	}
+
+	private void ensureSectionCapacity(int capacity, boolean preserveContents) {
+		if (lengths.length >= capacity) {
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, lengths.length + (lengths.length >> 1));
+		if (preserveContents) {
+			adapterPositions = Arrays.copyOf(adapterPositions, newCapacity);
+			numberOfItems = Arrays.copyOf(numberOfItems, newCapacity);
+			lengths = Arrays.copyOf(lengths, newCapacity);
+			flags = Arrays.copyOf(flags, newCapacity);
+		} else {
+			adapterPositions = new int[newCapacity];
+			numberOfItems = new int[newCapacity];
+			lengths = new int[newCapacity];
+			flags = new byte[newCapacity];
+		}
+	}
+
+	private void ensureTableCapacity(int capacity, boolean preserveContents) {
+		if (sectionIndicesByAdapterPosition.length >= capacity) {
+			return;
+		}
+
+		// grow geometrically so a run of inserts doesn't reallocate on each one
+		int newCapacity = Math.max(capacity, sectionIndicesByAdapterPosition.length + (sectionIndicesByAdapterPosition.length >> 1));
+		if (preserveContents) {
+			sectionIndicesByAdapterPosition = Arrays.copyOf(sectionIndicesByAdapterPosition, newCapacity);
+		} else {
+			sectionIndicesByAdapterPosition = new int[newCapacity];
+		}
+	}
+
+	private void ensureHeaderAndFooterCounts() {
+		if (headerAndFooterCountsValid) {
+			return;
+		}
+
+		if (headerCountsBefore.length < numberOfSections + 1) {
+			int capacity = Math.max(numberOfSections + 1, headerCountsBefore.length * 2);
+			headerCountsBefore = new int[capacity];
+			footerCountsBefore = new int[capacity];
+		}
+
+		int headers = 0;
+		int footers = 0;
+		for (int s = 0; s < numberOfSections; s++) {
+			headerCountsBefore[s] = headers;
+			footerCountsBefore[s] = footers;
+			if ((flags[s] & FLAG_HAS_HEADER) != 0) {
+				headers++;
+			}
+			if ((flags[s] & FLAG_HAS_FOOTER) != 0) {
+				footers++;
+			}
+		}
+		headerCountsBefore[numberOfSections] = headers;
+		footerCountsBefore[numberOfSections] = footers;
+
+		headerAndFooterCountsValid = true;
+	}
+
+	private void buildLengthTree() {
+		int n = numberOfSections;
+		if (lengthTree.length < n + 1) {
+			lengthTree = new int[Math.max(n + 1, lengthTree.length + (lengthTree.length >> 1))];
+		}
+
+		// linear time construction: seed each node with its section's length, then push partial sums to parents
+		for (int i = 1; i <= n; i++) {
+			lengthTree[i] = lengths[i - 1];
+		}
+		for (int i = 1; i <= n; i++) {
+			int parent = i + (i & -i);
+			if (parent <= n) {
+				lengthTree[parent] += lengthTree[i];
+			}
+		}
+	}
+
+	private void addToLengthTree(int sectionIndex, int delta) {
+		for (int i = sectionIndex + 1, n = numberOfSections; i <= n; i += i & -i) {
+			lengthTree[i] += delta;
+		}
+	}
+}
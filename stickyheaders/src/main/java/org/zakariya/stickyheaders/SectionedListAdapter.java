@@ -0,0 +1,212 @@
+package org.zakariya.stickyheaders;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SectionedListAdapter
+ * A SectioningAdapter whose data is an immutable list of sections, each an immutable list of items.
+ * Submit new snapshots with submitSections; the difference from the current snapshot is computed on
+ * a background thread and dispatched as minimal section and item notifications, keeping collapse and
+ * selection state. If a newer snapshot is submitted before an older one's diff completes, the older
+ * result is dropped.
+ * <p/>
+ * Subclasses implement areItemsTheSame and areItemContentsTheSame, and may override the section
+ * hooks to give sections identity, headers and footers. Snapshots, and the lists they contain, must
+ * not be modified after being submitted.
+ *
+ * @param <T> the item type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public abstract class SectionedListAdapter<T> extends SectioningAdapter {
+
+	private List<? extends List<T>> sections = Collections.emptyList();
+
+	/**
+	 * @return the snapshot currently presented by the adapter
+	 */
+	public List<? extends List<T>> getSections() {
+		return sections;
+	}
+
+	/**
+	 * @param sectionIndex index of section
+	 * @param itemIndex    index of item in the section
+	 * @return the item currently presented at that position
+	 */
+	public T getItem(int sectionIndex, int itemIndex) {
+		return sections.get(sectionIndex).get(itemIndex);
+	}
+
+	/**
+	 * Submit a new snapshot to be diffed against the current one and presented. Must be called on the main thread.
+	 *
+	 * @param newSections the new snapshot, or null for no sections
+	 */
+	public void submitSections(List<? extends List<T>> newSections) {
+		submitSections(newSections, null);
+	}
+
+	/**
+	 * Submit a new snapshot to be diffed against the current one and presented. Must be called on the main thread.
+	 *
+	 * @param newSections    the new snapshot, or null for no sections
+	 * @param commitCallback if not null, run once the snapshot is presented; not run if the snapshot is superseded first
+	 */
+	public void submitSections(List<? extends List<T>> newSections, final Runnable commitCallback) {
+		if (newSections == null) {
+			newSections = Collections.emptyList();
+		}
+
+		if (newSections == sections) {
+			// drop any pending snapshot, since this one is newer
+			discardPendingSectionDiff();
+			if (commitCallback != null) {
+				commitCallback.run();
+			}
+			return;
+		}
+
+		// nothing to animate between, so skip the diff
+		if (newSections.isEmpty() || sections.isEmpty()) {
+			sections = newSections;
+			notifyAllSectionsDataSetChanged();
+			if (commitCallback != null) {
+				commitCallback.run();
+			}
+			return;
+		}
+
+		final List<? extends List<T>> oldSections = sections;
+		final List<? extends List<T>> submittedSections = newSections;
+
+		applySectionDiff(new SectionDiffCallback() {
+			@Override
+			public int getNewSectionCount() {
+				return submittedSections.size();
+			}
+
+			@Override
+			public int getNewSectionItemCount(int newSectionIndex) {
+				return submittedSections.get(newSectionIndex).size();
+			}
+
+			@Override
+			public boolean doesNewSectionHaveHeader(int newSectionIndex) {
+				return doesSectionHaveHeader(submittedSections.get(newSectionIndex), newSectionIndex);
+			}
+
+			@Override
+			public boolean doesNewSectionHaveFooter(int newSectionIndex) {
+				return doesSectionHaveFooter(submittedSections.get(newSectionIndex), newSectionIndex);
+			}
+
+			@Override
+			public boolean areSectionsTheSame(int oldSectionIndex, int newSectionIndex) {
+				Object oldId = getSectionId(oldSections.get(oldSectionIndex), oldSectionIndex);
+				Object newId = getSectionId(submittedSections.get(newSectionIndex), newSectionIndex);
+				return oldId == null ? newId == null : oldId.equals(newId);
+			}
+
+			@Override
+			public boolean areSectionContentsTheSame(int oldSectionIndex, int newSectionIndex) {
+				return SectionedListAdapter.this.areSectionContentsTheSame(oldSections.get(oldSectionIndex), submittedSections.get(newSectionIndex));
+			}
+
+			@Override
+			public boolean areItemsTheSame(int oldSectionIndex, int oldItemIndex, int newSectionIndex, int newItemIndex) {
+				return SectionedListAdapter.this.areItemsTheSame(oldSections.get(oldSectionIndex).get(oldItemIndex), submittedSections.get(newSectionIndex).get(newItemIndex));
+			}
+
+			@Override
+			public boolean areItemContentsTheSame(int oldSectionIndex, int oldItemIndex, int newSectionIndex, int newItemIndex) {
+				return SectionedListAdapter.this.areItemContentsTheSame(oldSections.get(oldSectionIndex).get(oldItemIndex), submittedSections.get(newSectionIndex).get(newItemIndex));
+			}
+
+			@Override
+			public void commit() {
+				sections = submittedSections;
+				if (commitCallback != null) {
+					post(commitCallback);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @param oldItem an item in the current snapshot
+	 * @param newItem an item in the new snapshot
+	 * @return true if the two items represent the same object, e.g., have the same id
+	 */
+	protected abstract boolean areItemsTheSame(T oldItem, T newItem);
+
+	/**
+	 * Called for items which areItemsTheSame, to determine if they need rebinding
+	 *
+	 * @param oldItem an item in the current snapshot
+	 * @param newItem an item in the new snapshot
+	 * @return true if the two items display the same content
+	 */
+	protected abstract boolean areItemContentsTheSame(T oldItem, T newItem);
+
+	/**
+	 * Identify a section across snapshots. By default sections are identified by their index, so sections are
+	 * never detected as inserted, removed or moved unless the number of sections changes.
+	 *
+	 * @param section      the section's items
+	 * @param sectionIndex index of the section in its snapshot
+	 * @return an id, compared with equals, which is the same for the same section in different snapshots
+	 */
+	protected Object getSectionId(List<T> section, int sectionIndex) {
+		return sectionIndex;
+	}
+
+	/**
+	 * Called for sections with the same id, to determine if their header and footer need rebinding
+	 *
+	 * @param oldSection a section in the current snapshot
+	 * @param newSection a section in the new snapshot
+	 * @return true if the section's header and footer display the same content
+	 */
+	protected boolean areSectionContentsTheSame(List<T> oldSection, List<T> newSection) {
+		return true;
+	}
+
+	/**
+	 * @param section      the section's items
+	 * @param sectionIndex index of the section in its snapshot
+	 * @return true if the section has a header. May be called on a background thread. By default, true.
+	 */
+	protected boolean doesSectionHaveHeader(List<T> section, int sectionIndex) {
+		return true;
+	}
+
+	/**
+	 * @param section      the section's items
+	 * @param sectionIndex index of the section in its snapshot
+	 * @return true if the section has a footer. May be called on a background thread. By default, false.
+	 */
+	protected boolean doesSectionHaveFooter(List<T> section, int sectionIndex) {
+		return false;
+	}
+
+	@Override
+	public int getNumberOfSections() {
+		return sections.size();
+	}
+
+	@Override
+	public int getNumberOfItemsInSection(int sectionIndex) {
+		return sections.get(sectionIndex).size();
+	}
+
+	@Override
+	public boolean doesSectionHaveHeader(int sectionIndex) {
+		return doesSectionHaveHeader(sections.get(sectionIndex), sectionIndex);
+	}
+
+	@Override
+	public boolean doesSectionHaveFooter(int sectionIndex) {
+		return doesSectionHaveFooter(sections.get(sectionIndex), sectionIndex);
+	}
+}
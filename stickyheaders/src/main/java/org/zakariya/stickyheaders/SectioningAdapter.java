@@ -2,16 +2,18 @@ package org.zakariya.stickyheaders;
 
 import android.os.Handler;
 import android.os.Looper;
-import android.util.SparseBooleanArray;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * SectioningAdapter
@@ -33,6 +35,9 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 
 	private static final String TAG = "SectioningAdapter";
 
+	// number of packed view types cached by getItemViewType, must be a power of two
+	private static final int VIEW_TYPE_CACHE_SIZE = 256;
+
 	public static final int NO_POSITION = -1;
 
 	public static final int TYPE_HEADER = 0;
@@ -40,26 +45,72 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	public static final int TYPE_ITEM = 2;
 	public static final int TYPE_FOOTER = 3;
 
-	private static class Section {
-		int adapterPosition;    // adapterPosition of first item (the header) of this sections
-		int numberOfItems;      // number of items (not including header or footer)
-		int length;             // total number of items in sections including header and footer
-		boolean hasHeader;      // if true, sections has a header
-		boolean hasFooter;      // if true, sections has a footer
+	/**
+	 * Payload passed to onBindViewHolder for rows whose only change is their selection state.
+	 * Such rows are bound with onBindItemViewHolderSelection, onBindHeaderViewHolderSelection and
+	 * onBindFooterViewHolderSelection rather than a full rebind. The sticky header layout managers keep
+	 * the sizes they measured for such rows, so binding the selection state must not change a view's size.
+	 */
+	public static final Object SELECTION_CHANGED = new Object();
+
+	/**
+	 * Strategies for resolving an adapter position to the section containing it.
+	 *
+	 * @see #setPositionLookupStrategy(PositionLookupStrategy)
+	 */
+	public enum PositionLookupStrategy {
+		/**
+		 * Store the section index of every adapter position. Lookups are O(1), but memory use is
+		 * one int per adapter position, and section changes have to rewrite the table from the changed section onwards.
+		 */
+		LOOKUP_TABLE,
+
+		/**
+		 * Binary search the start positions of the sections. Lookups are O(log S) for S sections, and no storage
+		 * is needed beyond the per-section records.
+		 */
+		BINARY_SEARCH,
+
+		/**
+		 * Store section lengths in a Fenwick (binary indexed) tree. Lookups and section start positions are O(log S),
+		 * and a change in the length of a single section is O(log S) rather than shifting every following section.
+		 * Best suited to many sections with frequent incremental item insertions and removals.
+		 */
+		FENWICK_TREE
 	}
 
 	private static class SectionSelectionState {
 		boolean section;
-		SparseBooleanArray items = new SparseBooleanArray();
+		IntervalSet items = new IntervalSet();
 		boolean footer;
+
+		int getSelectedCount() {
+			return items.size() + (footer ? 1 : 0);
+		}
 	}
 
-	private ArrayList<Section> sections;
+	private SectionIndex sections;
 	private HashMap<Integer, Boolean> collapsedSections = new HashMap<>();
-	private HashMap<Integer, SectionSelectionState> selectionStateBySection = new HashMap<>();
-	private int[] sectionIndicesByAdapterPosition;
-	private int totalNumberOfItems;
+
+	// sorted by section index, so the selection can be walked in order without sorting or allocating
+	private SparseArray<SectionSelectionState> selectionStateBySection = new SparseArray<>();
+	private int selectedItemCount; // selected items and footers, across all sections
+	private int selectedSectionCount;
+	private SelectionListener selectionListener;
+	private boolean selectionChangePending;
+	private boolean structuralChangePending; // the section index was patched, or rows added, removed or moved, during a batch
+	private PositionLookupStrategy positionLookupStrategy = PositionLookupStrategy.LOOKUP_TABLE;
+	private UpdateBatch updateBatch = new UpdateBatch();
+	private int updateBatchDepth;
+	private boolean incrementalSectionIndexEnabled;
+	private boolean sectionIndexVerificationEnabled;
 	private Handler mainThreadHandler;
+	private int[] viewTypeCachePositions;
+	private int[] viewTypeCacheTypes;
+	private Executor sectionDiffExecutor;
+	private int sectionDiffGeneration;
+
+	private static Executor defaultSectionDiffExecutor;
 
 
 	@SuppressWarnings("WeakerAccess")
@@ -311,6 +362,44 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	public void onBindFooterViewHolder(FooterViewHolder viewHolder, int sectionIndex, int footerUserType) {
 	}
 
+	/**
+	 * Called in place of onBindItemViewHolder when only the selection state of the item changed. Override to update
+	 * just the views which reflect selection. By default, calls onBindItemViewHolder.
+	 *
+	 * @param viewHolder   the view holder to update
+	 * @param sectionIndex the index of the section containing the item
+	 * @param itemIndex    the index of the item in the section where 0 is the first item
+	 * @param itemUserType if getSectionItemUserType is overridden to provide custom item types, this will be the type for this item
+	 * @see #SELECTION_CHANGED
+	 */
+	public void onBindItemViewHolderSelection(ItemViewHolder viewHolder, int sectionIndex, int itemIndex, int itemUserType) {
+		onBindItemViewHolder(viewHolder, sectionIndex, itemIndex, itemUserType);
+	}
+
+	/**
+	 * Called in place of onBindHeaderViewHolder when only the selection state of the section changed. By default, calls onBindHeaderViewHolder.
+	 *
+	 * @param viewHolder     the view holder to update
+	 * @param sectionIndex   the index of the section containing the header to update
+	 * @param headerUserType if getSectionHeaderUserType is overridden to provide custom header types, this will be the type for this header
+	 * @see #SELECTION_CHANGED
+	 */
+	public void onBindHeaderViewHolderSelection(HeaderViewHolder viewHolder, int sectionIndex, int headerUserType) {
+		onBindHeaderViewHolder(viewHolder, sectionIndex, headerUserType);
+	}
+
+	/**
+	 * Called in place of onBindFooterViewHolder when only the selection state of the footer changed. By default, calls onBindFooterViewHolder.
+	 *
+	 * @param viewHolder     the view holder to update
+	 * @param sectionIndex   the index of the section containing the footer to update
+	 * @param footerUserType if getSectionFooterUserType is overridden to provide custom footer types, this will be the type for this footer
+	 * @see #SELECTION_CHANGED
+	 */
+	public void onBindFooterViewHolderSelection(FooterViewHolder viewHolder, int sectionIndex, int footerUserType) {
+		onBindFooterViewHolder(viewHolder, sectionIndex, footerUserType);
+	}
+
 	/**
 	 * Given a "global" adapter adapterPosition, determine which sections contains that item
 	 *
@@ -330,7 +419,7 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			throw new IndexOutOfBoundsException("adapterPosition " + adapterPosition + " is not in range of items represented by adapter");
 		}
 
-		return sectionIndicesByAdapterPosition[adapterPosition];
+		return sections.getSectionForAdapterPosition(adapterPosition);
 	}
 
 	/**
@@ -352,17 +441,16 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			throw new IndexOutOfBoundsException("sectionIndex " + sectionIndex + " < 0");
 		}
 
-		if (sectionIndex >= sections.size()) {
-			throw new IndexOutOfBoundsException("sectionIndex " + sectionIndex + " >= sections.size (" + sections.size() + ")");
+		if (sectionIndex >= sections.getNumberOfSections()) {
+			throw new IndexOutOfBoundsException("sectionIndex " + sectionIndex + " >= sections.size (" + sections.getNumberOfSections() + ")");
 		}
 
-		Section section = this.sections.get(sectionIndex);
-		int localPosition = adapterPosition - section.adapterPosition;
-		if (localPosition > section.length) {
-			throw new IndexOutOfBoundsException("adapterPosition: " + adapterPosition + " is beyond sectionIndex: " + sectionIndex + " length: " + section.length);
+		int localPosition = adapterPosition - sections.getAdapterPosition(sectionIndex);
+		if (localPosition > sections.getLength(sectionIndex)) {
+			throw new IndexOutOfBoundsException("adapterPosition: " + adapterPosition + " is beyond sectionIndex: " + sectionIndex + " length: " + sections.getLength(sectionIndex));
 		}
 
-		if (section.hasHeader) {
+		if (sections.hasHeader(sectionIndex)) {
 			// adjust for header and ghostHeader
 			localPosition -= 2;
 		}
@@ -377,7 +465,7 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 * @param offsetIntoSection offset into sectionIndex where 0 is the header, 1 is the first item, etc
 	 * @return the "global" adapter adapterPosition
 	 */
-	private int getAdapterPosition(int sectionIndex, int offsetIntoSection) {
+	int getAdapterPosition(int sectionIndex, int offsetIntoSection) {
 		if (sections == null) {
 			buildSectionIndex();
 		}
@@ -386,12 +474,11 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			throw new IndexOutOfBoundsException("sectionIndex " + sectionIndex + " < 0");
 		}
 
-		if (sectionIndex >= sections.size()) {
-			throw new IndexOutOfBoundsException("sectionIndex " + sectionIndex + " >= sections.size (" + sections.size() + ")");
+		if (sectionIndex >= sections.getNumberOfSections()) {
+			throw new IndexOutOfBoundsException("sectionIndex " + sectionIndex + " >= sections.size (" + sections.getNumberOfSections() + ")");
 		}
 
-		Section section = this.sections.get(sectionIndex);
-		int adapterPosition = section.adapterPosition;
+		int adapterPosition = sections.getAdapterPosition(sectionIndex);
 		return offsetIntoSection + adapterPosition;
 	}
 
@@ -447,9 +534,8 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 */
 	public int getAdapterPositionForSectionFooter(int sectionIndex) {
 		if (doesSectionHaveFooter(sectionIndex)) {
-			Section section = this.sections.get(sectionIndex);
-			int adapterPosition = section.adapterPosition;
-			return adapterPosition + section.length - 1;
+			int adapterPosition = sections.getAdapterPosition(sectionIndex);
+			return adapterPosition + sections.getLength(sectionIndex) - 1;
 		} else {
 			return NO_POSITION;
 		}
@@ -472,8 +558,7 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 				buildSectionIndex();
 			}
 
-			Section section = sections.get(sectionIndex);
-			int number = section.numberOfItems;
+			int number = sections.getNumberOfItems(sectionIndex);
 
 			if (collapsed) {
 				notifySectionItemRangeRemoved(sectionIndex, 0, number, false);
@@ -513,30 +598,42 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 * @param notify if true, notifies data change for recyclerview, if false, silent
 	 */
 	public void clearSelection(boolean notify) {
+		boolean wasEmpty = isSelectionEmpty();
 
-		HashMap<Integer, SectionSelectionState> selectionState = notify ? new HashMap<>(selectionStateBySection) : null;
-		selectionStateBySection = new HashMap<>();
+		SparseArray<SectionSelectionState> selectionState = selectionStateBySection;
+		selectionStateBySection = new SparseArray<>();
+		selectedItemCount = 0;
+		selectedSectionCount = 0;
 
 		if (notify) {
 
-			// walk the selection state and update the items which were selected
-			for (int sectionIndex : selectionState.keySet()) {
-				SectionSelectionState state = selectionState.get(sectionIndex);
-
-				if (state.section) {
-					notifySectionDataSetChanged(sectionIndex);
-				} else {
-					for (int i = 0, s = state.items.size(); i < s; i++) {
-						if (state.items.valueAt(i)) {
-							notifySectionItemChanged(sectionIndex, state.items.keyAt(i));
+			// walk the selection state and update the items which were selected, batched so adjacent rows coalesce
+			beginUpdates();
+			try {
+				for (int s = 0, n = selectionState.size(); s < n; s++) {
+					int sectionIndex = selectionState.keyAt(s);
+					SectionSelectionState state = selectionState.valueAt(s);
+
+					if (state.section) {
+						notifySectionSelectionChanged(sectionIndex);
+					} else {
+						for (int run = 0, runs = state.items.getRunCount(); run < runs; run++) {
+							int fromItemIndex = state.items.getRunStart(run);
+							notifySectionItemRangeSelectionChanged(sectionIndex, fromItemIndex, state.items.getRunEnd(run) - fromItemIndex);
+						}
+						if (state.footer) {
+							notifySectionFooterSelectionChanged(sectionIndex);
 						}
-					}
-					if (state.footer) {
-						notifySectionFooterChanged(sectionIndex);
 					}
 				}
+			} finally {
+				endUpdates();
 			}
 		}
+
+		if (!wasEmpty) {
+			dispatchSelectionChanged();
+		}
 	}
 
 	/**
@@ -552,52 +649,14 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 * @return true iff the selection state is empty
 	 */
 	public boolean isSelectionEmpty() {
-		for (int sectionIndex : selectionStateBySection.keySet()) {
-			SectionSelectionState state = selectionStateBySection.get(sectionIndex);
-
-			if (state.section) {
-				return false;
-			} else {
-				for (int i = 0, s = state.items.size(); i < s; i++) {
-					if (state.items.valueAt(i)) {
-						return false;
-					}
-				}
-				if (state.footer) {
-					return false;
-				}
-			}
-		}
-
-		return true;
+		return selectedItemCount == 0 && selectedSectionCount == 0;
 	}
 
+	/**
+	 * @return the number of selected items and footers, where a selected section contributes all its items and its footer
+	 */
 	public int getSelectedItemCount() {
-		int count = 0;
-		for (int sectionIndex : selectionStateBySection.keySet()) {
-			SectionSelectionState state = selectionStateBySection.get(sectionIndex);
-
-			if (state.section) {
-
-				count += getNumberOfItemsInSection(sectionIndex);
-
-				if (doesSectionHaveFooter(sectionIndex)) {
-					count++;
-				}
-			} else {
-				for (int i = 0, s = state.items.size(); i < s; i++) {
-					boolean selected = state.items.valueAt(i);
-					if (selected) {
-						count++;
-					}
-				}
-				if (state.footer) {
-					count++;
-				}
-			}
-		}
-
-		return count;
+		return selectedItemCount;
 	}
 
 	/**
@@ -611,6 +670,24 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 		void onVisitSelectedFooter(int sectionIndex);
 	}
 
+	/**
+	 * Visitor interface for walking adapter selection state as contiguous runs of items
+	 *
+	 * @see #traverseSelectionRuns(SelectionRunVisitor, boolean)
+	 */
+	public interface SelectionRunVisitor {
+		void onVisitSelectedSection(int sectionIndex);
+
+		/**
+		 * @param sectionIndex  index of the section
+		 * @param fromItemIndex index of the first item of the run, relative to the section
+		 * @param number        number of items in the run
+		 */
+		void onVisitSelectedSectionItems(int sectionIndex, int fromItemIndex, int number);
+
+		void onVisitSelectedFooter(int sectionIndex);
+	}
+
 	/**
 	 * Walks the selection state of the adapter, in reverse order from end to front. This is to ensure that any additions or deletions
 	 * which are made based on selection are safe to perform.
@@ -619,15 +696,11 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 */
 	public void traverseSelection(SelectionVisitor visitor) {
 
-		// walk the section indices backwards
-		List<Integer> sectionIndices = new ArrayList<>(selectionStateBySection.keySet());
-		java.util.Collections.sort(sectionIndices, Collections.<Integer>reverseOrder());
-
-		for (int sectionIndex : sectionIndices) {
-			SectionSelectionState state = selectionStateBySection.get(sectionIndex);
-			if (state == null) {
-				continue;
-			}
+		// walk the sections backwards; the visitor may replace selectionStateBySection by inserting or removing sections,
+		// but the sections before the one being visited keep their indices
+		for (int s = selectionStateBySection.size() - 1; s >= 0; s = Math.min(s, selectionStateBySection.size()) - 1) {
+			int sectionIndex = selectionStateBySection.keyAt(s);
+			SectionSelectionState state = selectionStateBySection.valueAt(s);
 
 			if (state.section) {
 				visitor.onVisitSelectedSection(sectionIndex);
@@ -638,9 +711,9 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 				}
 
 				// walk items backwards
-				for (int i = state.items.size() - 1; i >= 0; i--) {
-					if (state.items.valueAt(i)) {
-						visitor.onVisitSelectedSectionItem(sectionIndex, state.items.keyAt(i));
+				for (int run = state.items.getRunCount() - 1; run >= 0; run--) {
+					for (int i = state.items.getRunEnd(run) - 1, start = state.items.getRunStart(run); i >= start; i--) {
+						visitor.onVisitSelectedSectionItem(sectionIndex, i);
 					}
 				}
 			}
@@ -648,6 +721,154 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 
 	}
 
+	/**
+	 * Walks the selection state of the adapter, handing each contiguous run of selected items in a section to the visitor as one range.
+	 * A selected section is visited as a whole, as in traverseSelection. Walking in reverse, the footer of each section is visited
+	 * before its items and runs are visited from last to first, so that deleting each run as it's visited is safe.
+	 *
+	 * @param visitor visitor which is invoked to process selection state
+	 * @param reverse if true, walk from end to front, otherwise from front to end
+	 */
+	public void traverseSelectionRuns(SelectionRunVisitor visitor, boolean reverse) {
+		if (reverse) {
+			for (int s = selectionStateBySection.size() - 1; s >= 0; s = Math.min(s, selectionStateBySection.size()) - 1) {
+				int sectionIndex = selectionStateBySection.keyAt(s);
+				SectionSelectionState state = selectionStateBySection.valueAt(s);
+
+				if (state.section) {
+					visitor.onVisitSelectedSection(sectionIndex);
+					continue;
+				}
+
+				if (state.footer) {
+					visitor.onVisitSelectedFooter(sectionIndex);
+				}
+
+				for (int run = state.items.getRunCount() - 1; run >= 0; run = Math.min(run, state.items.getRunCount()) - 1) {
+					int fromItemIndex = state.items.getRunStart(run);
+					visitor.onVisitSelectedSectionItems(sectionIndex, fromItemIndex, state.items.getRunEnd(run) - fromItemIndex);
+				}
+			}
+		} else {
+			for (int s = 0; s < selectionStateBySection.size(); s++) {
+				int sectionIndex = selectionStateBySection.keyAt(s);
+				SectionSelectionState state = selectionStateBySection.valueAt(s);
+
+				if (state.section) {
+					visitor.onVisitSelectedSection(sectionIndex);
+					continue;
+				}
+
+				for (int run = 0; run < state.items.getRunCount(); run++) {
+					int fromItemIndex = state.items.getRunStart(run);
+					visitor.onVisitSelectedSectionItems(sectionIndex, fromItemIndex, state.items.getRunEnd(run) - fromItemIndex);
+				}
+
+				if (state.footer) {
+					visitor.onVisitSelectedFooter(sectionIndex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Listener notified when the adapter's selection changes
+	 *
+	 * @see #setSelectionListener(SelectionListener)
+	 */
+	public interface SelectionListener {
+		/**
+		 * Called after the selection changes. Changes made during a batch update, e.g., by clearSelection or
+		 * removeSelected, are reported once, when the batch is committed.
+		 */
+		void onSelectionChanged();
+	}
+
+	/**
+	 * Assign a listener to be notified when the selection changes
+	 *
+	 * @param selectionListener the listener, or null
+	 */
+	public void setSelectionListener(SelectionListener selectionListener) {
+		this.selectionListener = selectionListener;
+	}
+
+	/**
+	 * Callback interface for removeSelected. Each method must remove the described content from the data source
+	 * before returning; the adapter makes the corresponding notifySection* call.
+	 */
+	public interface RemovalCallback {
+		/**
+		 * Remove a selected section, including its header, items and footer
+		 *
+		 * @param sectionIndex index of the section
+		 */
+		void onRemoveSelectedSection(int sectionIndex);
+
+		/**
+		 * Remove a contiguous range of selected items from a section
+		 *
+		 * @param sectionIndex  index of the section
+		 * @param fromItemIndex index of the first item to remove, relative to the section
+		 * @param number        number of items to remove
+		 */
+		void onRemoveSelectedSectionItems(int sectionIndex, int fromItemIndex, int number);
+
+		/**
+		 * Remove the selected footer of a section, such that doesSectionHaveFooter returns false for it
+		 *
+		 * @param sectionIndex index of the section
+		 */
+		void onRemoveSelectedFooter(int sectionIndex);
+	}
+
+	/**
+	 * Remove the selected sections, items and footers in a single batch update. The selection is walked in
+	 * reverse order, as in traverseSelection, but contiguous runs of selected items are handed to the callback
+	 * as one range, and produce one notifyItemRangeRemoved. The section index is rebuilt once, when the batch
+	 * is committed. The selection is empty afterwards.
+	 *
+	 * @param callback callback which removes the selected content from the data source
+	 */
+	public void removeSelected(RemovalCallback callback) {
+		if (isSelectionEmpty()) {
+			return;
+		}
+
+		beginUpdates();
+		try {
+			// walk the sections backwards, so removals don't shift the sections still to be visited
+			for (int s = selectionStateBySection.size() - 1; s >= 0; s = Math.min(s, selectionStateBySection.size()) - 1) {
+				int sectionIndex = selectionStateBySection.keyAt(s);
+				SectionSelectionState state = selectionStateBySection.valueAt(s);
+
+				if (state.section) {
+					callback.onRemoveSelectedSection(sectionIndex);
+					notifySectionRemoved(sectionIndex);
+					continue;
+				}
+
+				if (state.footer) {
+					state.footer = false;
+					selectedItemCount--;
+					dispatchSelectionChanged();
+					callback.onRemoveSelectedFooter(sectionIndex);
+					notifySectionFooterRemoved(sectionIndex);
+				}
+
+				// removing the last run leaves the runs before it in place
+				for (int run = state.items.getRunCount() - 1; run >= 0; run--) {
+					int fromItemIndex = state.items.getRunStart(run);
+					int number = state.items.getRunEnd(run) - fromItemIndex;
+					callback.onRemoveSelectedSectionItems(sectionIndex, fromItemIndex, number);
+					notifySectionItemRangeRemoved(sectionIndex, fromItemIndex, number);
+				}
+			}
+		} finally {
+			endUpdates();
+		}
+	}
+
 	/**
 	 * Set whether an entire section is selected. this affects ALL items (and footer) in section.
 	 *
@@ -657,19 +878,23 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	public void setSectionSelected(int sectionIndex, boolean selected) {
 		SectionSelectionState state = getSectionSelectionState(sectionIndex);
 		if (state.section != selected) {
+			int selectedCount = state.getSelectedCount();
 			state.section = selected;
+			selectedSectionCount += selected ? 1 : -1;
 
 			// update all items and footers
 			state.items.clear();
-			for (int i = 0, n = getNumberOfItemsInSection(sectionIndex); i < n; i++) {
-				state.items.put(i, selected);
+			if (selected) {
+				state.items.add(0, getNumberOfItemsInSection(sectionIndex));
 			}
 
 			if (doesSectionHaveFooter(sectionIndex)) {
 				state.footer = selected;
 			}
 
-			notifySectionDataSetChanged(sectionIndex);
+			selectedItemCount += state.getSelectedCount() - selectedCount;
+			notifySectionSelectionChanged(sectionIndex);
+			dispatchSelectionChanged();
 		}
 	}
 
@@ -689,7 +914,8 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 * @return true if section is selected
 	 */
 	public boolean isSectionSelected(int sectionIndex) {
-		return getSectionSelectionState(sectionIndex).section;
+		SectionSelectionState state = selectionStateBySection.get(sectionIndex);
+		return state != null && state.section;
 	}
 
 	/**
@@ -706,9 +932,42 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			return;
 		}
 
-		if (selected != state.items.get(itemIndex)) {
-			state.items.put(itemIndex, selected);
-			notifySectionItemChanged(sectionIndex, itemIndex);
+		if (selected != state.items.contains(itemIndex)) {
+			if (selected) {
+				selectedItemCount += state.items.add(itemIndex, itemIndex + 1);
+			} else {
+				selectedItemCount -= state.items.remove(itemIndex, itemIndex + 1);
+			}
+			notifySectionItemRangeSelectionChanged(sectionIndex, itemIndex, 1);
+			dispatchSelectionChanged();
+		}
+	}
+
+	/**
+	 * Select a range of items in a section. Note, if the section is selected, this is a no-op.
+	 * Unlike calling setSectionItemSelected for each item, this is O(log R) for a section whose selection consists of R runs,
+	 * regardless of the length of the range.
+	 *
+	 * @param sectionIndex  index of section
+	 * @param fromItemIndex index of the first item, relative to section
+	 * @param number        number of items
+	 * @param selected      selection state
+	 */
+	public void setSectionItemRangeSelected(int sectionIndex, int fromItemIndex, int number, boolean selected) {
+		SectionSelectionState state = getSectionSelectionState(sectionIndex);
+
+		if (state.section || number <= 0) {
+			return;
+		}
+
+		int changed = selected
+				? state.items.add(fromItemIndex, fromItemIndex + number)
+				: state.items.remove(fromItemIndex, fromItemIndex + number);
+
+		if (changed > 0) {
+			selectedItemCount += selected ? changed : -changed;
+			notifySectionItemRangeSelectionChanged(sectionIndex, fromItemIndex, number);
+			dispatchSelectionChanged();
 		}
 	}
 
@@ -730,8 +989,8 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 * @return true if the item is selected
 	 */
 	public boolean isSectionItemSelected(int sectionIndex, int itemIndex) {
-		SectionSelectionState state = getSectionSelectionState(sectionIndex);
-		return state.section || state.items.get(itemIndex);
+		SectionSelectionState state = selectionStateBySection.get(sectionIndex);
+		return state != null && (state.section || state.items.contains(itemIndex));
 	}
 
 	/**
@@ -749,7 +1008,9 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 
 		if (state.footer != selected) {
 			state.footer = selected;
-			notifySectionFooterChanged(sectionIndex);
+			selectedItemCount += selected ? 1 : -1;
+			notifySectionFooterSelectionChanged(sectionIndex);
+			dispatchSelectionChanged();
 		}
 	}
 
@@ -769,147 +1030,467 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 * @return true if the footer is selected
 	 */
 	public boolean isSectionFooterSelected(int sectionIndex) {
-		SectionSelectionState state = getSectionSelectionState(sectionIndex);
-		return state.section || state.footer;
+		SectionSelectionState state = selectionStateBySection.get(sectionIndex);
+		return state != null && (state.section || state.footer);
 	}
 
 	/**
-	 * Notify that all data in the list is invalid and the entire list should be reloaded.
-	 * NOTE: This will clear selection state, and collapsed section state.
-	 * Equivalent to RecyclerView.Adapter.notifyDataSetChanged.
-	 * Never directly call notifyDataSetChanged.
+	 * Select how adapter positions are resolved to sections, trading memory against lookup cost.
+	 * The default is PositionLookupStrategy.LOOKUP_TABLE. Changing the strategy rebuilds the section index,
+	 * but doesn't notify RecyclerView since the adapter's contents are unchanged.
+	 *
+	 * @param positionLookupStrategy the strategy to use
 	 */
-	public void notifyAllSectionsDataSetChanged() {
-		buildSectionIndex();
-		notifyDataSetChanged();
-		collapsedSections.clear();
-		selectionStateBySection.clear();
+	public void setPositionLookupStrategy(PositionLookupStrategy positionLookupStrategy) {
+		if (this.positionLookupStrategy == positionLookupStrategy) {
+			return;
+		}
+
+		this.positionLookupStrategy = positionLookupStrategy;
+		if (sections != null) {
+			sections.setStrategy(positionLookupStrategy);
+			sections.build(this);
+		}
 	}
 
 	/**
-	 * Notify that all the items in a particular section are invalid and that section should be reloaded
-	 * Never directly call notifyDataSetChanged.
-	 * This will clear item selection state for the affected section.
-	 *
-	 * @param sectionIndex index of the section to reload.
+	 * @return the strategy used to resolve adapter positions to sections
 	 */
-	public void notifySectionDataSetChanged(int sectionIndex) {
-		if (sections == null) {
-			buildSectionIndex();
-			notifyAllSectionsDataSetChanged();
-		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
-			notifyItemRangeChanged(section.adapterPosition, section.length);
-		}
-
-		// clear item selection state
-		getSectionSelectionState(sectionIndex).items.clear();
+	public PositionLookupStrategy getPositionLookupStrategy() {
+		return positionLookupStrategy;
 	}
 
 	/**
-	 * Notify that a range of items in a section has been inserted
+	 * Enable incremental maintenance of the section index. By default every notifySection* call rebuilds
+	 * the section index from scratch by querying every section of the data source. When incremental maintenance
+	 * is enabled, item, footer and section insertions and removals only re-query the affected section and shift the
+	 * sections which follow it, and item/footer changes don't touch the index at all.
+	 * This requires that the notifySection* calls exactly describe the changes made to the data source.
+	 * notifyAllSectionsDataSetChanged always performs a full rebuild.
 	 *
-	 * @param sectionIndex index of the section
-	 * @param fromPosition index to start adding
-	 * @param number       amount of items inserted
+	 * @param incrementalSectionIndexEnabled if true, the section index is patched in place rather than rebuilt
 	 */
-	public void notifySectionItemRangeInserted(int sectionIndex, int fromPosition, int number) {
-		notifySectionItemRangeInserted(sectionIndex, fromPosition, number, true);
+	public void setIncrementalSectionIndexEnabled(boolean incrementalSectionIndexEnabled) {
+		this.incrementalSectionIndexEnabled = incrementalSectionIndexEnabled;
 	}
 
-	private void notifySectionItemRangeInserted(int sectionIndex, int fromPosition, int number, boolean updateSelectionState) {
-		if (sections == null) {
-			buildSectionIndex();
-			notifyAllSectionsDataSetChanged();
-		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
-
-			// 0 is a valid position to insert from
-			if (fromPosition > section.numberOfItems) {
-				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + fromPosition + " exceeds sectionIndex numberOfItems: " + section.numberOfItems);
-			}
-
-			int offset = fromPosition;
-			if (section.hasHeader) {
-				offset += 2;
-			}
-
-			notifyItemRangeInserted(section.adapterPosition + offset, number);
-		}
-
-		if (updateSelectionState) {
-			// update selection state by inserting unselected spaces
-			updateSectionItemRangeSelectionState(sectionIndex, fromPosition, +number);
-		}
+	/**
+	 * @return true if the section index is patched in place by notifySection* calls
+	 */
+	public boolean isIncrementalSectionIndexEnabled() {
+		return incrementalSectionIndexEnabled;
 	}
 
 	/**
-	 * Notify that a range of items in a section has been removed
+	 * Debugging aid for incremental section index maintenance. When enabled, every incremental update of the section
+	 * index is compared against a full rebuild, and an IllegalStateException is thrown if they differ - which
+	 * generally means a notifySection* call didn't match the change made to the data source.
+	 * This is expensive, and should only be enabled in debug builds.
 	 *
-	 * @param sectionIndex index of the section
-	 * @param fromPosition index to start removing from
-	 * @param number       amount of items removed
+	 * @param sectionIndexVerificationEnabled if true, verify incremental updates against a full rebuild
+	 * @see #setIncrementalSectionIndexEnabled(boolean)
 	 */
-	public void notifySectionItemRangeRemoved(int sectionIndex, int fromPosition, int number) {
-		notifySectionItemRangeRemoved(sectionIndex, fromPosition, number, true);
+	public void setSectionIndexVerificationEnabled(boolean sectionIndexVerificationEnabled) {
+		this.sectionIndexVerificationEnabled = sectionIndexVerificationEnabled;
 	}
 
-	private void notifySectionItemRangeRemoved(int sectionIndex, int fromPosition, int number, boolean updateSelectionState) {
-		if (sections == null) {
-			buildSectionIndex();
-			notifyAllSectionsDataSetChanged();
-		} else {
-			Section section = this.sections.get(sectionIndex);
+	/**
+	 * @return true if incremental updates of the section index are verified against a full rebuild
+	 */
+	public boolean isSectionIndexVerificationEnabled() {
+		return sectionIndexVerificationEnabled;
+	}
 
-			// 0 is a valid position to remove from
-			if (fromPosition > section.numberOfItems) {
-				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + fromPosition + " exceeds sectionIndex numberOfItems: " + section.numberOfItems);
-			}
+	/**
+	 * Begin a batch of updates. Until the matching call to endUpdates, notifySection* calls (and selection and
+	 * collapse state changes) patch the section index in place instead of rebuilding it, and their RecyclerView
+	 * notifications are queued rather than dispatched. Batches may be nested; only the outermost endUpdates commits.
+	 * <p/>
+	 * Within a batch, make each notifySection* call immediately after the corresponding change to the data source,
+	 * exactly as you would outside a batch.
+	 *
+	 * @see #endUpdates()
+	 * @see #performBatchUpdates(Runnable)
+	 */
+	public void beginUpdates() {
+		updateBatchDepth++;
+	}
 
-			// Verify we don't run off the end of the section
-			if (fromPosition + number > section.numberOfItems) {
-				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + fromPosition + number + " exceeds sectionIndex numberOfItems: " + section.numberOfItems);
-			}
+	/**
+	 * Commit a batch of updates started by beginUpdates. The section index is rebuilt once (unless incremental
+	 * section index maintenance is enabled, in which case it's already up to date), and the queued notifications
+	 * are dispatched to RecyclerView, with adjacent ranges coalesced into single range notifications.
+	 */
+	public void endUpdates() {
+		if (updateBatchDepth == 0) {
+			throw new IllegalStateException("endUpdates called without matching call to beginUpdates");
+		}
 
-			int offset = fromPosition;
-			if (section.hasHeader) {
-				offset += 2;
-			}
+		if (--updateBatchDepth > 0) {
+			return;
+		}
 
-			notifyItemRangeRemoved(section.adapterPosition + offset, number);
+		// a batch of nothing but changes, e.g., selection changes, leaves the section index as it was
+		if (!incrementalSectionIndexEnabled && sections != null && structuralChangePending) {
 			buildSectionIndex();
 		}
+		structuralChangePending = false;
 
-		if (updateSelectionState) {
-			// update selection state by removing specified items
-			updateSectionItemRangeSelectionState(sectionIndex, fromPosition, -number);
+		updateBatch.dispatch(this);
+
+		if (selectionChangePending) {
+			selectionChangePending = false;
+			dispatchSelectionChanged();
 		}
 	}
 
-
 	/**
-	 * Notify that a particular itemIndex in a section has been invalidated and must be reloaded
-	 * Never directly call notifyItemChanged
+	 * Run the updates performed by an action as a single batch
 	 *
-	 * @param sectionIndex the index of the section containing the itemIndex
-	 * @param itemIndex    the index of the item relative to the section (where 0 is the first item in the section)
+	 * @param updates action which modifies the data source and calls the corresponding notifySection* methods
+	 * @see #beginUpdates()
 	 */
-	public void notifySectionItemChanged(int sectionIndex, int itemIndex) {
+	public void performBatchUpdates(Runnable updates) {
+		beginUpdates();
+		try {
+			updates.run();
+		} finally {
+			endUpdates();
+		}
+	}
+
+	/**
+	 * @return true if a batch update is in progress
+	 */
+	public boolean isInBatchUpdate() {
+		return updateBatchDepth > 0;
+	}
+
+	/**
+	 * Callback describing the difference between the data set the adapter currently presents and a new one,
+	 * for use with applySectionDiff. The implementation needs access to both the old and new data, and must
+	 * keep presenting the old data from the adapter's data source methods until commit is called.
+	 * <p/>
+	 * All methods but commit are called on a background thread, so the data they read must not be modified
+	 * while the diff is in progress.
+	 */
+	public static abstract class SectionDiffCallback {
+
+		/**
+		 * @return number of sections in the new data set
+		 */
+		public abstract int getNewSectionCount();
+
+		/**
+		 * @param newSectionIndex index of section in the new data set
+		 * @return number of items in that section
+		 */
+		public abstract int getNewSectionItemCount(int newSectionIndex);
+
+		/**
+		 * @param newSectionIndex index of section in the new data set
+		 * @return true if that section has a header
+		 */
+		public boolean doesNewSectionHaveHeader(int newSectionIndex) {
+			return false;
+		}
+
+		/**
+		 * @param newSectionIndex index of section in the new data set
+		 * @return true if that section has a footer
+		 */
+		public boolean doesNewSectionHaveFooter(int newSectionIndex) {
+			return false;
+		}
+
+		/**
+		 * @param oldSectionIndex index of section in the old data set
+		 * @param newSectionIndex index of section in the new data set
+		 * @return true if the two sections represent the same section, e.g., have the same id
+		 */
+		public abstract boolean areSectionsTheSame(int oldSectionIndex, int newSectionIndex);
+
+		/**
+		 * Called for sections which areSectionsTheSame, to determine if their header and footer need rebinding
+		 *
+		 * @param oldSectionIndex index of section in the old data set
+		 * @param newSectionIndex index of section in the new data set
+		 * @return true if the section's header and footer display the same content
+		 */
+		public boolean areSectionContentsTheSame(int oldSectionIndex, int newSectionIndex) {
+			return true;
+		}
+
+		/**
+		 * @param oldSectionIndex index of the old item's section
+		 * @param oldItemIndex    index of the old item in its section
+		 * @param newSectionIndex index of the new item's section
+		 * @param newItemIndex    index of the new item in its section
+		 * @return true if the two items represent the same object, e.g., have the same id
+		 */
+		public abstract boolean areItemsTheSame(int oldSectionIndex, int oldItemIndex, int newSectionIndex, int newItemIndex);
+
+		/**
+		 * Called for items which areItemsTheSame, to determine if they need rebinding
+		 *
+		 * @param oldSectionIndex index of the old item's section
+		 * @param oldItemIndex    index of the old item in its section
+		 * @param newSectionIndex index of the new item's section
+		 * @param newItemIndex    index of the new item in its section
+		 * @return true if the two items display the same content
+		 */
+		public abstract boolean areItemContentsTheSame(int oldSectionIndex, int oldItemIndex, int newSectionIndex, int newItemIndex);
+
+		/**
+		 * Called on the main thread once the diff is computed, immediately before the adapter starts
+		 * presenting the new data set. Replace the adapter's data with the new data set here.
+		 */
+		public abstract void commit();
+
+		/**
+		 * Called on the main thread instead of commit if the diff was superseded by a later call to
+		 * applySectionDiff or notifyAllSectionsDataSetChanged before it completed.
+		 */
+		public void onDiscarded() {
+		}
+	}
+
+	/**
+	 * Set the executor applySectionDiff uses to compute diffs. By default a small thread pool shared by all
+	 * SectioningAdapters is used.
+	 *
+	 * @param executor the executor to run diffs on, or null to use the default
+	 */
+	public void setSectionDiffExecutor(Executor executor) {
+		sectionDiffExecutor = executor;
+	}
+
+	/**
+	 * Compute the difference between the data set the adapter currently presents and a new one on a background
+	 * thread, then on the main thread have the callback commit the new data set and dispatch the minimal set of
+	 * insert, remove, move and change notifications. Collapsed and selection state follow sections and items
+	 * to their new positions, rather than being reset as by notifyAllSectionsDataSetChanged.
+	 * <p/>
+	 * Don't call the other notifySection* methods while a diff is pending, since the diff is computed against
+	 * the data set as it was when applySectionDiff was called. Calling applySectionDiff again supersedes
+	 * a pending diff.
+	 *
+	 * @param callback describes the new data set and how it relates to the current one
+	 */
+	public void applySectionDiff(final SectionDiffCallback callback) {
+		if (sections == null) {
+			buildSectionIndex();
+		}
+
+		final int generation = ++sectionDiffGeneration;
+		final SectionDiff diff = new SectionDiff(this, sections, callback);
+
+		Executor executor = sectionDiffExecutor;
+		if (executor == null) {
+			executor = getDefaultSectionDiffExecutor();
+		}
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				diff.calculate();
+				post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation == sectionDiffGeneration) {
+							commitSectionDiff(diff, callback);
+						} else {
+							callback.onDiscarded();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Notify that all data in the list is invalid and the entire list should be reloaded.
+	 * NOTE: This will clear selection state, and collapsed section state.
+	 * Equivalent to RecyclerView.Adapter.notifyDataSetChanged.
+	 * Never directly call notifyDataSetChanged.
+	 */
+	public void notifyAllSectionsDataSetChanged() {
+		sectionDiffGeneration++;
+		buildSectionIndex();
+		dispatchDataSetChanged();
+		collapsedSections.clear();
+		selectionStateBySection.clear();
+
+		if (!isSelectionEmpty()) {
+			selectedItemCount = 0;
+			selectedSectionCount = 0;
+			dispatchSelectionChanged();
+		}
+	}
+
+	/**
+	 * Notify that all the items in a particular section are invalid and that section should be reloaded
+	 * Never directly call notifyDataSetChanged.
+	 * This will clear item selection state for the affected section.
+	 *
+	 * @param sectionIndex index of the section to reload.
+	 */
+	public void notifySectionDataSetChanged(int sectionIndex) {
+		if (sections == null) {
+			buildSectionIndex();
+			notifyAllSectionsDataSetChanged();
+		} else {
+			updateSectionIndex(sectionIndex);
+			dispatchItemRangeChanged(sections.getAdapterPosition(sectionIndex), sections.getLength(sectionIndex));
+		}
+
+		// clear item selection state; every item of a selected section remains selected, as does its footer if it has one
+		SectionSelectionState state = selectionStateBySection.get(sectionIndex);
+		if (state != null) {
+			int selectedCount = state.getSelectedCount();
+			state.items.clear();
+			if (state.section) {
+				state.items.add(0, getNumberOfItemsInSection(sectionIndex));
+			}
+			state.footer = (state.section || state.footer) && doesSectionHaveFooter(sectionIndex);
+			if (state.getSelectedCount() != selectedCount) {
+				selectedItemCount += state.getSelectedCount() - selectedCount;
+				dispatchSelectionChanged();
+			}
+		}
+	}
+
+	/**
+	 * Notify that a range of items in a section has been inserted
+	 *
+	 * @param sectionIndex index of the section
+	 * @param fromPosition index to start adding
+	 * @param number       amount of items inserted
+	 */
+	public void notifySectionItemRangeInserted(int sectionIndex, int fromPosition, int number) {
+		notifySectionItemRangeInserted(sectionIndex, fromPosition, number, true);
+	}
+
+	private void notifySectionItemRangeInserted(int sectionIndex, int fromPosition, int number, boolean updateSelectionState) {
+		if (sections == null) {
+			buildSectionIndex();
+			notifyAllSectionsDataSetChanged();
+		} else {
+			updateSectionIndex(sectionIndex);
+
+			// 0 is a valid position to insert from
+			if (fromPosition > sections.getNumberOfItems(sectionIndex)) {
+				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + fromPosition + " exceeds sectionIndex numberOfItems: " + sections.getNumberOfItems(sectionIndex));
+			}
+
+			int offset = fromPosition;
+			if (sections.hasHeader(sectionIndex)) {
+				offset += 2;
+			}
+
+			dispatchItemRangeInserted(sections.getAdapterPosition(sectionIndex) + offset, number);
+		}
+
+		if (updateSelectionState) {
+			// update selection state by inserting unselected spaces
+			updateSectionItemRangeSelectionState(sectionIndex, fromPosition, +number);
+		}
+	}
+
+	/**
+	 * Notify that a range of items in a section has been removed
+	 *
+	 * @param sectionIndex index of the section
+	 * @param fromPosition index to start removing from
+	 * @param number       amount of items removed
+	 */
+	public void notifySectionItemRangeRemoved(int sectionIndex, int fromPosition, int number) {
+		notifySectionItemRangeRemoved(sectionIndex, fromPosition, number, true);
+	}
+
+	private void notifySectionItemRangeRemoved(int sectionIndex, int fromPosition, int number, boolean updateSelectionState) {
 		if (sections == null) {
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
 		} else {
+			int numberOfItems = sections.getNumberOfItems(sectionIndex);
+
+			// 0 is a valid position to remove from
+			if (fromPosition > numberOfItems) {
+				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + fromPosition + " exceeds sectionIndex numberOfItems: " + numberOfItems);
+			}
+
+			// Verify we don't run off the end of the section
+			if (fromPosition + number > numberOfItems) {
+				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + fromPosition + number + " exceeds sectionIndex numberOfItems: " + numberOfItems);
+			}
+
+			int offset = fromPosition;
+			if (sections.hasHeader(sectionIndex)) {
+				offset += 2;
+			}
+
+			dispatchItemRangeRemoved(sections.getAdapterPosition(sectionIndex) + offset, number);
+			updateSectionIndex(sectionIndex);
+		}
+
+		if (updateSelectionState) {
+			// update selection state by removing specified items
+			updateSectionItemRangeSelectionState(sectionIndex, fromPosition, -number);
+		}
+	}
+
+
+	/**
+	 * Notify that a particular itemIndex in a section has been invalidated and must be reloaded
+	 * Never directly call notifyItemChanged
+	 *
+	 * @param sectionIndex the index of the section containing the itemIndex
+	 * @param itemIndex    the index of the item relative to the section (where 0 is the first item in the section)
+	 */
+	public void notifySectionItemChanged(int sectionIndex, int itemIndex) {
+		if (sections == null) {
 			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
-			if (itemIndex >= section.numberOfItems) {
-				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + itemIndex + " exceeds sectionIndex numberOfItems: " + section.numberOfItems);
+			notifyAllSectionsDataSetChanged();
+		} else {
+			if (!isPatchingSectionIndex()) {
+				buildSectionIndex();
 			}
-			if (section.hasHeader) {
+
+			if (itemIndex >= sections.getNumberOfItems(sectionIndex)) {
+				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + itemIndex + " exceeds sectionIndex numberOfItems: " + sections.getNumberOfItems(sectionIndex));
+			}
+			if (sections.hasHeader(sectionIndex)) {
 				itemIndex += 2;
 			}
-			notifyItemChanged(section.adapterPosition + itemIndex);
+			dispatchItemRangeChanged(sections.getAdapterPosition(sectionIndex) + itemIndex, 1);
+		}
+	}
+
+	/**
+	 * Notify that a range of items in a section has been invalidated and must be reloaded
+	 * Never directly call notifyItemRangeChanged
+	 *
+	 * @param sectionIndex the index of the section containing the items
+	 * @param fromPosition the index of the first item relative to the section
+	 * @param number       the number of items
+	 */
+	public void notifySectionItemRangeChanged(int sectionIndex, int fromPosition, int number) {
+		if (sections == null) {
+			buildSectionIndex();
+			notifyAllSectionsDataSetChanged();
+		} else {
+			if (!isPatchingSectionIndex()) {
+				buildSectionIndex();
+			}
+
+			if (fromPosition + number > sections.getNumberOfItems(sectionIndex)) {
+				throw new IndexOutOfBoundsException("itemIndex adapterPosition: " + (fromPosition + number - 1) + " exceeds sectionIndex numberOfItems: " + sections.getNumberOfItems(sectionIndex));
+			}
+			if (sections.hasHeader(sectionIndex)) {
+				fromPosition += 2;
+			}
+			dispatchItemRangeChanged(sections.getAdapterPosition(sectionIndex) + fromPosition, number);
 		}
 	}
 
@@ -925,14 +1506,13 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
 		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
+			updateSectionIndex(sectionIndex);
 
 			int offset = itemIndex;
-			if (section.hasHeader) {
+			if (sections.hasHeader(sectionIndex)) {
 				offset += 2;
 			}
-			notifyItemInserted(section.adapterPosition + offset);
+			dispatchItemRangeInserted(sections.getAdapterPosition(sectionIndex) + offset, 1);
 		}
 
 		updateSectionItemRangeSelectionState(sectionIndex, itemIndex, 1);
@@ -950,14 +1530,13 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
 		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
+			updateSectionIndex(sectionIndex);
 
 			int offset = itemIndex;
-			if (section.hasHeader) {
+			if (sections.hasHeader(sectionIndex)) {
 				offset += 2;
 			}
-			notifyItemRemoved(section.adapterPosition + offset);
+			dispatchItemRangeRemoved(sections.getAdapterPosition(sectionIndex) + offset, 1);
 		}
 
 		updateSectionItemRangeSelectionState(sectionIndex, itemIndex, -1);
@@ -969,16 +1548,16 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 * @param sectionIndex position of the new section
 	 */
 	public void notifySectionInserted(int sectionIndex) {
+		// shift collapse state first, since updating the index queries isSectionCollapsed
+		updateCollapseAndSelectionStateForSectionChange(sectionIndex, +1);
+
 		if (sections == null) {
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
 		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
-			notifyItemRangeInserted(section.adapterPosition, section.length);
+			updateSectionIndexForInsertedSection(sectionIndex);
+			dispatchItemRangeInserted(sections.getAdapterPosition(sectionIndex), sections.getLength(sectionIndex));
 		}
-
-		updateCollapseAndSelectionStateForSectionChange(sectionIndex, +1);
 	}
 
 	/**
@@ -990,13 +1569,16 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 		if (sections == null) {
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
+			updateCollapseAndSelectionStateForSectionChange(sectionIndex, -1);
 		} else {
-			Section section = this.sections.get(sectionIndex);
-			buildSectionIndex();
-			notifyItemRangeRemoved(section.adapterPosition, section.length);
-		}
+			int adapterPosition = sections.getAdapterPosition(sectionIndex);
+			int length = sections.getLength(sectionIndex);
 
-		updateCollapseAndSelectionStateForSectionChange(sectionIndex, -1);
+			// shift collapse state first, since rebuilding the index queries isSectionCollapsed
+			updateCollapseAndSelectionStateForSectionChange(sectionIndex, -1);
+			updateSectionIndexForRemovedSection(sectionIndex);
+			dispatchItemRangeRemoved(adapterPosition, length);
+		}
 	}
 
 	/**
@@ -1009,13 +1591,14 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
 		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
-			if (!section.hasFooter) {
+			updateSectionIndex(sectionIndex);
+			if (!sections.hasFooter(sectionIndex)) {
 				throw new IllegalArgumentException("notifySectionFooterInserted: adapter implementation reports that section " + sectionIndex + " does not have a footer");
 			}
-			notifyItemInserted(section.adapterPosition + section.length - 1);
+			dispatchItemRangeInserted(sections.getAdapterPosition(sectionIndex) + sections.getLength(sectionIndex) - 1, 1);
 		}
+
+		updateSectionFooterSelectionState(sectionIndex, true);
 	}
 
 	/**
@@ -1028,13 +1611,14 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
 		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
-			if (section.hasFooter) {
+			updateSectionIndex(sectionIndex);
+			if (sections.hasFooter(sectionIndex)) {
 				throw new IllegalArgumentException("notifySectionFooterRemoved: adapter implementation reports that section " + sectionIndex + " has a footer");
 			}
-			notifyItemRemoved(section.adapterPosition + section.length);
+			dispatchItemRangeRemoved(sections.getAdapterPosition(sectionIndex) + sections.getLength(sectionIndex), 1);
 		}
+
+		updateSectionFooterSelectionState(sectionIndex, false);
 	}
 
 	/**
@@ -1047,12 +1631,14 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			buildSectionIndex();
 			notifyAllSectionsDataSetChanged();
 		} else {
-			buildSectionIndex();
-			Section section = this.sections.get(sectionIndex);
-			if (!section.hasFooter) {
+			if (!isPatchingSectionIndex()) {
+				buildSectionIndex();
+			}
+
+			if (!sections.hasFooter(sectionIndex)) {
 				throw new IllegalArgumentException("notifySectionFooterChanged: adapter implementation reports that section " + sectionIndex + " does not have a footer");
 			}
-			notifyItemChanged(section.adapterPosition + section.length - 1);
+			dispatchItemRangeChanged(sections.getAdapterPosition(sectionIndex) + sections.getLength(sectionIndex) - 1, 1);
 		}
 	}
 
@@ -1064,7 +1650,7 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	 *
 	 * @param action action to run
 	 */
-	private void post(Runnable action) {
+	void post(Runnable action) {
 		if (mainThreadHandler == null) {
 			mainThreadHandler = new Handler(Looper.getMainLooper());
 		}
@@ -1072,72 +1658,361 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 		mainThreadHandler.post(action);
 	}
 
-	private void buildSectionIndex() {
-		sections = new ArrayList<>();
-
-		int i = 0;
-		for (int s = 0, ns = getNumberOfSections(); s < ns; s++) {
-			Section section = new Section();
-			section.adapterPosition = i;
-			section.hasHeader = doesSectionHaveHeader(s);
-			section.hasFooter = doesSectionHaveFooter(s);
-
-			if (isSectionCollapsed(s)) {
-				section.length = 0;
-				section.numberOfItems = getNumberOfItemsInSection(s);
-			} else {
-				section.length = section.numberOfItems = getNumberOfItemsInSection(s);
+	/**
+	 * Drop the result of a pending applySectionDiff, if any; its callback's onDiscarded will be called instead of commit
+	 */
+	void discardPendingSectionDiff() {
+		sectionDiffGeneration++;
+	}
+
+	private static synchronized Executor getDefaultSectionDiffExecutor() {
+		if (defaultSectionDiffExecutor == null) {
+			defaultSectionDiffExecutor = Executors.newFixedThreadPool(2);
+		}
+		return defaultSectionDiffExecutor;
+	}
+
+	private void commitSectionDiff(SectionDiff diff, SectionDiffCallback callback) {
+		callback.commit();
+
+		// move collapse and selection state to the sections' and items' new indices
+		HashMap<Integer, Boolean> collapseState = collapsedSections;
+		SparseArray<SectionSelectionState> selectionState = selectionStateBySection;
+		collapsedSections = new HashMap<>();
+		selectionStateBySection = new SparseArray<>();
+
+		for (int oldSectionIndex : collapseState.keySet()) {
+			int sectionIndex = oldSectionIndex < sections.getNumberOfSections() ? diff.getNewSectionIndex(oldSectionIndex) : NO_POSITION;
+			if (sectionIndex != NO_POSITION && diff.isNewSectionCollapsed(sectionIndex)) {
+				collapsedSections.put(sectionIndex, true);
+			}
+		}
+
+		for (int s = 0, n = selectionState.size(); s < n; s++) {
+			int oldSectionIndex = selectionState.keyAt(s);
+			if (oldSectionIndex >= sections.getNumberOfSections()) {
+				break;
 			}
 
-			if (section.hasHeader) {
-				section.length += 2; // room for header and ghostHeader
+			SectionSelectionState oldState = selectionState.valueAt(s);
+			int sectionIndex = diff.getNewSectionIndex(oldSectionIndex);
+			if (sectionIndex != NO_POSITION) {
+				SectionSelectionState state = getSectionSelectionState(sectionIndex);
+				state.section = oldState.section;
+				state.footer = (oldState.section || oldState.footer) && diff.doesNewSectionHaveFooter(sectionIndex);
+			}
+
+			// a selected section's items are selected by virtue of the section, and are reselected in full below if it
+			// survived; any which moved to another section aren't carried there individually
+			if (oldState.section) {
+				continue;
 			}
-			if (section.hasFooter) {
-				section.length++;
+
+			// items may have moved to other sections; each stretch of a run which lands on consecutive items of one
+			// new section is added as a single range
+			oldState.items.remove(sections.getNumberOfItems(oldSectionIndex), Integer.MAX_VALUE);
+			for (int run = 0, runs = oldState.items.getRunCount(); run < runs; run++) {
+				int stretchSection = NO_POSITION;
+				int stretchStart = 0;
+				int stretchEnd = 0;
+
+				for (int i = oldState.items.getRunStart(run), end = oldState.items.getRunEnd(run); i < end; i++) {
+					long item = diff.convertOldItemToNew(oldSectionIndex, i);
+					int itemSection = item == -1 ? NO_POSITION : (int) (item >>> 32);
+					int itemIndex = (int) item;
+
+					if (itemSection != NO_POSITION && itemSection == stretchSection && itemIndex == stretchEnd) {
+						stretchEnd++;
+						continue;
+					}
+
+					if (stretchSection != NO_POSITION) {
+						getSectionSelectionState(stretchSection).items.add(stretchStart, stretchEnd);
+					}
+
+					stretchSection = itemSection;
+					stretchStart = itemIndex;
+					stretchEnd = itemIndex + 1;
+				}
+
+				if (stretchSection != NO_POSITION) {
+					getSectionSelectionState(stretchSection).items.add(stretchStart, stretchEnd);
+				}
 			}
+		}
 
-			this.sections.add(section);
+		int oldSelectedItemCount = selectedItemCount;
+		int oldSelectedSectionCount = selectedSectionCount;
+		buildSectionIndex();
 
-			i += section.length;
+		// a selected section's new items are selected too
+		for (int s = 0, n = selectionStateBySection.size(); s < n; s++) {
+			SectionSelectionState state = selectionStateBySection.valueAt(s);
+			if (state.section) {
+				state.items.add(0, getNumberOfItemsInSection(selectionStateBySection.keyAt(s)));
+			}
+		}
+		updateSelectionCounts();
+		if (selectedItemCount != oldSelectedItemCount || selectedSectionCount != oldSelectedSectionCount) {
+			dispatchSelectionChanged();
 		}
 
-		totalNumberOfItems = i;
+		diff.dispatchUpdatesTo(new ListUpdateCallback() {
+			@Override
+			public void onInserted(int position, int count) {
+				dispatchItemRangeInserted(position, count);
+			}
+
+			@Override
+			public void onRemoved(int position, int count) {
+				dispatchItemRangeRemoved(position, count);
+			}
 
-		i = 0;
-		sectionIndicesByAdapterPosition = new int[totalNumberOfItems];
-		for (int s = 0, ns = getNumberOfSections(); s < ns; s++) {
-			Section section = sections.get(s);
-			for (int p = 0; p < section.length; p++) {
-				sectionIndicesByAdapterPosition[i + p] = s;
+			@Override
+			public void onMoved(int fromPosition, int toPosition) {
+				dispatchItemMoved(fromPosition, toPosition);
 			}
 
-			i += section.length;
+			@Override
+			public void onChanged(int position, int count, Object payload) {
+				dispatchItemRangeChanged(position, count);
+			}
+		});
+
+		// the section index was rebuilt from the data source above, which covers this and any earlier changes in
+		// an open batch, so endUpdates needn't rebuild it again
+		structuralChangePending = false;
+	}
+
+	private void invalidateViewTypeCache() {
+		if (viewTypeCachePositions != null) {
+			Arrays.fill(viewTypeCachePositions, NO_POSITION);
+		}
+	}
+
+	private void buildSectionIndex() {
+		invalidateViewTypeCache();
+		if (sections == null) {
+			sections = new SectionIndex(positionLookupStrategy);
+		}
+
+		sections.build(this);
+	}
+
+	/**
+	 * Bring the section index up to date after the items, footer or collapsed state of a single section changed
+	 *
+	 * @param sectionIndex the index of the section which changed
+	 */
+	private void updateSectionIndex(int sectionIndex) {
+		if (isPatchingSectionIndex()) {
+			markStructuralChange();
+			sections.updateSection(this, sectionIndex);
+			verifySectionIndex();
+		} else {
+			buildSectionIndex();
+		}
+	}
+
+	private void updateSectionIndexForInsertedSection(int sectionIndex) {
+		if (isPatchingSectionIndex()) {
+			markStructuralChange();
+			sections.insertSection(this, sectionIndex);
+			verifySectionIndex();
+		} else {
+			buildSectionIndex();
+		}
+	}
+
+	private void updateSectionIndexForRemovedSection(int sectionIndex) {
+		if (isPatchingSectionIndex()) {
+			markStructuralChange();
+			sections.removeSection(sectionIndex);
+			verifySectionIndex();
+		} else {
+			buildSectionIndex();
+		}
+	}
+
+	/**
+	 * The index is patched in place rather than rebuilt if incremental maintenance is enabled, or while
+	 * a batch update is open - the latter is resolved by a single rebuild when the batch is committed.
+	 */
+	private boolean isPatchingSectionIndex() {
+		return incrementalSectionIndexEnabled || updateBatchDepth > 0;
+	}
+
+	/**
+	 * Record that the current batch, if any, changes the structure of the adapter, so endUpdates must rebuild the section index
+	 */
+	private void markStructuralChange() {
+		if (updateBatchDepth > 0) {
+			structuralChangePending = true;
+		}
+	}
+
+	private void dispatchDataSetChanged() {
+		invalidateViewTypeCache();
+		markStructuralChange();
+		if (updateBatchDepth > 0) {
+			updateBatch.addDataSetChanged();
+		} else {
+			notifyDataSetChanged();
+		}
+	}
+
+	private void dispatchItemRangeInserted(int adapterPosition, int count) {
+		invalidateViewTypeCache();
+		markStructuralChange();
+		if (updateBatchDepth > 0) {
+			updateBatch.add(UpdateBatch.INSERT, adapterPosition, count);
+		} else {
+			notifyItemRangeInserted(adapterPosition, count);
+		}
+	}
+
+	private void dispatchItemRangeRemoved(int adapterPosition, int count) {
+		invalidateViewTypeCache();
+		markStructuralChange();
+		if (updateBatchDepth > 0) {
+			updateBatch.add(UpdateBatch.REMOVE, adapterPosition, count);
+		} else {
+			notifyItemRangeRemoved(adapterPosition, count);
+		}
+	}
+
+	private void dispatchItemRangeChanged(int adapterPosition, int count) {
+		invalidateViewTypeCache();
+		if (updateBatchDepth > 0) {
+			updateBatch.add(UpdateBatch.CHANGE, adapterPosition, count);
+		} else {
+			notifyItemRangeChanged(adapterPosition, count);
+		}
+	}
+
+	private void dispatchItemRangeSelectionChanged(int adapterPosition, int count) {
+		// view types are unaffected by selection, so the view type cache stays valid
+		if (updateBatchDepth > 0) {
+			updateBatch.add(UpdateBatch.SELECTION_CHANGE, adapterPosition, count);
+		} else if (count > 0) {
+			notifyItemRangeChanged(adapterPosition, count, SELECTION_CHANGED);
+		}
+	}
+
+	private void dispatchItemMoved(int fromPosition, int toPosition) {
+		invalidateViewTypeCache();
+		markStructuralChange();
+		if (updateBatchDepth > 0) {
+			updateBatch.add(UpdateBatch.MOVE, fromPosition, toPosition);
+		} else {
+			notifyItemMoved(fromPosition, toPosition);
+		}
+	}
+
+	private void verifySectionIndex() {
+		if (!sectionIndexVerificationEnabled) {
+			return;
+		}
+
+		SectionIndex reference = new SectionIndex(positionLookupStrategy);
+		reference.build(this);
+		String difference = sections.findDifference(reference);
+		if (difference != null) {
+			throw new IllegalStateException("Incrementally updated section index does not match data source, " + difference + ". Ensure notifySection* calls match the changes made to the data source.");
 		}
 	}
 
 	private void updateSectionItemRangeSelectionState(int sectionIndex, int fromPosition, int delta) {
-		SectionSelectionState sectionSelectionState = getSectionSelectionState(sectionIndex);
-		SparseBooleanArray itemState = sectionSelectionState.items.clone();
-		sectionSelectionState.items.clear();
+		SectionSelectionState state = selectionStateBySection.get(sectionIndex);
+		if (state == null) {
+			return;
+		}
 
-		for (int i = 0, n = itemState.size(); i < n; i++) {
-			int pos = itemState.keyAt(i);
+		int selectedCount = state.getSelectedCount();
+		state.items.shift(fromPosition, delta);
 
-			if (delta < 0 && pos >= fromPosition && pos < fromPosition - delta) { // erasure
-				continue;
-			}
+		// items inserted into a selected section are selected
+		if (state.section && delta > 0) {
+			state.items.add(fromPosition, fromPosition + delta);
+		}
 
-			int newPos = pos;
-			if (pos >= fromPosition) {
-				newPos += delta;
-			}
+		if (state.getSelectedCount() != selectedCount) {
+			selectedItemCount += state.getSelectedCount() - selectedCount;
+			dispatchSelectionChanged();
+		}
+	}
 
-			if (itemState.get(pos)) {
-				sectionSelectionState.items.put(newPos, true);
-			}
+	/**
+	 * Notify the selection listener of a selection change, deferring it to the end of the batch if one is open
+	 */
+	private void dispatchSelectionChanged() {
+		if (updateBatchDepth > 0) {
+			selectionChangePending = true;
+		} else if (selectionListener != null) {
+			selectionListener.onSelectionChanged();
 		}
 	}
 
+	/**
+	 * Rebind every row of a section with the SELECTION_CHANGED payload
+	 */
+	private void notifySectionSelectionChanged(int sectionIndex) {
+		if (sections != null) {
+			dispatchItemRangeSelectionChanged(sections.getAdapterPosition(sectionIndex), sections.getLength(sectionIndex));
+		}
+	}
+
+	/**
+	 * Rebind a range of items in a section with the SELECTION_CHANGED payload. The items of a collapsed section aren't
+	 * in the adapter, so there's nothing to rebind.
+	 */
+	private void notifySectionItemRangeSelectionChanged(int sectionIndex, int fromItemIndex, int number) {
+		if (sections != null && !isSectionCollapsed(sectionIndex)) {
+			int offset = sections.hasHeader(sectionIndex) ? 2 : 0;
+			dispatchItemRangeSelectionChanged(sections.getAdapterPosition(sectionIndex) + offset + fromItemIndex, number);
+		}
+	}
+
+	/**
+	 * Rebind the footer of a section, if it has one, with the SELECTION_CHANGED payload
+	 */
+	private void notifySectionFooterSelectionChanged(int sectionIndex) {
+		if (sections != null && sections.hasFooter(sectionIndex)) {
+			dispatchItemRangeSelectionChanged(sections.getAdapterPosition(sectionIndex) + sections.getLength(sectionIndex) - 1, 1);
+		}
+	}
+
+	/**
+	 * Bring a section's footer selection in line with whether it has a footer. The footer of a selected section is selected.
+	 */
+	private void updateSectionFooterSelectionState(int sectionIndex, boolean hasFooter) {
+		SectionSelectionState state = selectionStateBySection.get(sectionIndex);
+		if (state == null) {
+			return;
+		}
+
+		boolean footer = hasFooter && (state.section || state.footer);
+		if (footer != state.footer) {
+			state.footer = footer;
+			selectedItemCount += footer ? 1 : -1;
+			dispatchSelectionChanged();
+		}
+	}
+
+	/**
+	 * Recompute the running selection counts from the selection state of every section
+	 */
+	private void updateSelectionCounts() {
+		selectedItemCount = 0;
+		selectedSectionCount = 0;
+		for (int s = 0, n = selectionStateBySection.size(); s < n; s++) {
+			SectionSelectionState state = selectionStateBySection.valueAt(s);
+			selectedItemCount += state.getSelectedCount();
+			if (state.section) {
+				selectedSectionCount++;
+			}
+		}
+	}
 
 	private void updateCollapseAndSelectionStateForSectionChange(int sectionIndex, int delta) {
 
@@ -1159,13 +2034,21 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			collapsedSections.put(j, collapseState.get(i));
 		}
 
-		// update selection state
-		HashMap<Integer, SectionSelectionState> selectionState = new HashMap<>(selectionStateBySection);
-		selectionStateBySection.clear();
+		// update selection state; the shifted keys stay in order, so they're appended
+		SparseArray<SectionSelectionState> selectionState = selectionStateBySection;
+		selectionStateBySection = new SparseArray<>(selectionState.size());
+
+		for (int s = 0, n = selectionState.size(); s < n; s++) {
+			int i = selectionState.keyAt(s);
+			SectionSelectionState state = selectionState.valueAt(s);
 
-		for (int i : selectionState.keySet()) {
 			// erasure
 			if (delta < 0 && i == sectionIndex) {
+				if (state.section || state.getSelectedCount() > 0) {
+					selectedItemCount -= state.getSelectedCount();
+					selectedSectionCount -= state.section ? 1 : 0;
+					dispatchSelectionChanged();
+				}
 				continue;
 			}
 
@@ -1174,7 +2057,7 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 				j += delta;
 			}
 
-			selectionStateBySection.put(j, selectionState.get(i));
+			selectionStateBySection.append(j, state);
 		}
 	}
 
@@ -1183,11 +2066,29 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 		if (sections == null) {
 			buildSectionIndex();
 		}
-		return totalNumberOfItems;
+		return sections.getTotalNumberOfItems();
 	}
 
 	@Override
 	public int getItemViewType(int adapterPosition) {
+		if (viewTypeCachePositions == null) {
+			viewTypeCachePositions = new int[VIEW_TYPE_CACHE_SIZE];
+			viewTypeCacheTypes = new int[VIEW_TYPE_CACHE_SIZE];
+			Arrays.fill(viewTypeCachePositions, NO_POSITION);
+		}
+
+		int slot = adapterPosition & (VIEW_TYPE_CACHE_SIZE - 1);
+		if (adapterPosition >= 0 && viewTypeCachePositions[slot] == adapterPosition) {
+			return viewTypeCacheTypes[slot];
+		}
+
+		int viewType = computeItemViewType(adapterPosition);
+		viewTypeCachePositions[slot] = adapterPosition;
+		viewTypeCacheTypes[slot] = viewType;
+		return viewType;
+	}
+
+	private int computeItemViewType(int adapterPosition) {
 		if (sections == null) {
 			buildSectionIndex();
 		}
@@ -1199,10 +2100,9 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 		}
 
 		int sectionIndex = getSectionForAdapterPosition(adapterPosition);
-		Section section = this.sections.get(sectionIndex);
-		int localPosition = adapterPosition - section.adapterPosition;
+		int localPosition = adapterPosition - sections.getAdapterPosition(sectionIndex);
 
-		int baseType = getItemViewBaseType(section, localPosition);
+		int baseType = getItemViewBaseType(sectionIndex, localPosition);
 		int userType = 0;
 
 
@@ -1215,7 +2115,7 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 				break;
 			case TYPE_ITEM:
 				// adjust local position to accommodate header & ghost header
-				if (section.hasHeader) {
+				if (sections.hasHeader(sectionIndex)) {
 					localPosition -= 2;
 				}
 				userType = getSectionItemUserType(sectionIndex, localPosition);
@@ -1237,11 +2137,22 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 	}
 
 	/**
+	 * Determined from the section structure alone, without consulting the user type callbacks.
+	 *
 	 * @param adapterPosition the adapterPosition of the item in question
 	 * @return the base type (TYPE_HEADER, TYPE_GHOST_HEADER, TYPE_ITEM, TYPE_FOOTER) of the item at a given adapter position
 	 */
 	public int getItemViewBaseType(int adapterPosition) {
-		return unmaskBaseViewType(getItemViewType(adapterPosition));
+		if (sections == null) {
+			buildSectionIndex();
+		}
+
+		if (adapterPosition < 0 || adapterPosition >= sections.getTotalNumberOfItems()) {
+			throw new IndexOutOfBoundsException("adapterPosition " + adapterPosition + " is not in range of items represented by adapter");
+		}
+
+		int sectionIndex = sections.getSectionForAdapterPosition(adapterPosition);
+		return getItemViewBaseType(sectionIndex, adapterPosition - sections.getAdapterPosition(sectionIndex));
 	}
 
 	/**
@@ -1260,18 +2171,76 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 		return (itemViewTypeMask >> 8) & 0xFF; // use type is in 0x0000FF00 segment
 	}
 
-	int getItemViewBaseType(Section section, int localPosition) {
-		if (section.hasHeader && section.hasFooter) {
+	/**
+	 * Count the headers, ghost headers, items and footers before a section, without querying the data source
+	 *
+	 * @param sectionIndex index of a section, or getNumberOfSections() to count everything
+	 * @param counts       receives the counts, indexed by base type (TYPE_HEADER, TYPE_GHOST_HEADER, TYPE_ITEM, TYPE_FOOTER)
+	 */
+	void countItemsBeforeSection(int sectionIndex, int[] counts) {
+		if (sections == null) {
+			buildSectionIndex();
+		}
+
+		int sectionStart = sectionIndex < sections.getNumberOfSections() ? sections.getAdapterPosition(sectionIndex) : sections.getTotalNumberOfItems();
+		int headers = sections.getNumberOfHeadersBefore(sectionIndex);
+		int footers = sections.getNumberOfFootersBefore(sectionIndex);
+
+		counts[TYPE_HEADER] = headers;
+		counts[TYPE_GHOST_HEADER] = headers;
+		counts[TYPE_ITEM] = sectionStart - 2 * headers - footers;
+		counts[TYPE_FOOTER] = footers;
+	}
+
+	/**
+	 * Count the headers, ghost headers, items and footers before an adapter position, without querying the data source
+	 *
+	 * @param adapterPosition an adapter position, or getItemCount() to count everything
+	 * @param counts          receives the counts, indexed by base type (TYPE_HEADER, TYPE_GHOST_HEADER, TYPE_ITEM, TYPE_FOOTER)
+	 */
+	void countItemsBeforeAdapterPosition(int adapterPosition, int[] counts) {
+		if (sections == null) {
+			buildSectionIndex();
+		}
+
+		if (adapterPosition >= sections.getTotalNumberOfItems()) {
+			countItemsBeforeSection(sections.getNumberOfSections(), counts);
+			return;
+		}
+
+		int sectionIndex = sections.getSectionForAdapterPosition(adapterPosition);
+		countItemsBeforeSection(sectionIndex, counts);
+
+		// add the part of the section before adapterPosition
+		int localPosition = adapterPosition - sections.getAdapterPosition(sectionIndex);
+		if (localPosition > 0) {
+			if (sections.hasHeader(sectionIndex)) {
+				counts[TYPE_HEADER]++;
+				if (localPosition > 1) {
+					counts[TYPE_GHOST_HEADER]++;
+				}
+				localPosition = Math.max(localPosition - 2, 0);
+			}
+			counts[TYPE_ITEM] += localPosition;
+		}
+	}
+
+	int getItemViewBaseType(int sectionIndex, int localPosition) {
+		boolean hasHeader = sections.hasHeader(sectionIndex);
+		boolean hasFooter = sections.hasFooter(sectionIndex);
+		int length = sections.getLength(sectionIndex);
+
+		if (hasHeader && hasFooter) {
 			if (localPosition == 0) {
 				return TYPE_HEADER;
 			} else if (localPosition == 1) {
 				return TYPE_GHOST_HEADER;
-			} else if (localPosition == section.length - 1) {
+			} else if (localPosition == length - 1) {
 				return TYPE_FOOTER;
 			} else {
 				return TYPE_ITEM;
 			}
-		} else if (section.hasHeader) {
+		} else if (hasHeader) {
 			if (localPosition == 0) {
 				return TYPE_HEADER;
 			} else if (localPosition == 1) {
@@ -1279,8 +2248,8 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 			} else {
 				return TYPE_ITEM;
 			}
-		} else if (section.hasFooter) {
-			if (localPosition == section.length - 1) {
+		} else if (hasFooter) {
+			if (localPosition == length - 1) {
 				return TYPE_FOOTER;
 			} else {
 				return TYPE_ITEM;
@@ -1313,6 +2282,36 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 
 	@Override
 	public void onBindViewHolder(ViewHolder holder, int adapterPosition) {
+		bindViewHolder(holder, adapterPosition, false);
+	}
+
+	@Override
+	public void onBindViewHolder(ViewHolder holder, int adapterPosition, List<Object> payloads) {
+		if (isSelectionChangedPayload(payloads)) {
+			bindViewHolder(holder, adapterPosition, true);
+		} else {
+			onBindViewHolder(holder, adapterPosition);
+		}
+	}
+
+	/**
+	 * @return true if the payloads consist only of SELECTION_CHANGED, so a partial rebind suffices
+	 */
+	private static boolean isSelectionChangedPayload(List<Object> payloads) {
+		if (payloads.isEmpty()) {
+			return false;
+		}
+
+		for (int i = 0, n = payloads.size(); i < n; i++) {
+			if (payloads.get(i) != SELECTION_CHANGED) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void bindViewHolder(ViewHolder holder, int adapterPosition, boolean selectionChanged) {
 		int section = getSectionForAdapterPosition(adapterPosition);
 
 		// bind the sections to this view holder
@@ -1326,22 +2325,37 @@ public class SectioningAdapter extends RecyclerView.Adapter<SectioningAdapter.Vi
 		int userType = unmaskUserViewType(holder.getItemViewType());
 		switch (baseType) {
 			case TYPE_HEADER:
-				onBindHeaderViewHolder((HeaderViewHolder) holder, section, userType);
+				if (selectionChanged) {
+					onBindHeaderViewHolderSelection((HeaderViewHolder) holder, section, userType);
+				} else {
+					onBindHeaderViewHolder((HeaderViewHolder) holder, section, userType);
+				}
 				break;
 
 			case TYPE_ITEM:
 				ItemViewHolder ivh = (ItemViewHolder) holder;
 				int positionInSection = getPositionOfItemInSection(section, adapterPosition);
 				ivh.setPositionInSection(positionInSection);
-				onBindItemViewHolder(ivh, section, positionInSection, userType);
+				if (selectionChanged) {
+					onBindItemViewHolderSelection(ivh, section, positionInSection, userType);
+				} else {
+					onBindItemViewHolder(ivh, section, positionInSection, userType);
+				}
 				break;
 
 			case TYPE_FOOTER:
-				onBindFooterViewHolder((FooterViewHolder) holder, section, userType);
+				if (selectionChanged) {
+					onBindFooterViewHolderSelection((FooterViewHolder) holder, section, userType);
+				} else {
+					onBindFooterViewHolder((FooterViewHolder) holder, section, userType);
+				}
 				break;
 
 			case TYPE_GHOST_HEADER:
-				onBindGhostHeaderViewHolder((GhostHeaderViewHolder) holder, section);
+				// ghost headers have nothing to show for selection
+				if (!selectionChanged) {
+					onBindGhostHeaderViewHolder((GhostHeaderViewHolder) holder, section);
+				}
 				break;
 
 			default:
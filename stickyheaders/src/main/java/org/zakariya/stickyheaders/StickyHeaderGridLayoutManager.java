@@ -0,0 +1,293 @@
+package org.zakariya.stickyheaders;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * StickyHeaderGridLayoutManager
+ * A StickyHeaderLayoutManager which flows the items of each section into a grid of spanCount columns
+ * (or rows, in horizontal orientation). Headers and footers span the full width of the list, and
+ * headers stick just as they do in StickyHeaderLayoutManager. Each section starts a new row.
+ * <p/>
+ * By default each item occupies one span. Assign a SpanSizeLookup to give items different span sizes;
+ * rows are then computed once per section and cached until the adapter changes.
+ * StickyHeaderGridLayoutManager MUST be used in conjunction with SectioningAdapter.
+ *
+ * @see SectioningAdapter
+ * @see StickyHeaderLayoutManager
+ */
+@SuppressWarnings("unused")
+public class StickyHeaderGridLayoutManager extends StickyHeaderLayoutManager {
+
+	/**
+	 * Determines how many spans each item in a section occupies
+	 */
+	public static abstract class SpanSizeLookup {
+		/**
+		 * @param sectionIndex index of the section
+		 * @param itemIndex    index of the item in the section
+		 * @return the number of spans the item occupies, from 1 to the span count
+		 */
+		public abstract int getSpanSize(int sectionIndex, int itemIndex);
+	}
+
+	private int spanCount;
+	private SpanSizeLookup spanSizeLookup;
+
+	// per section, for each item the index of the first item in its row and its span index,
+	// interleaved. Only populated when a spanSizeLookup is assigned
+	private SparseArray<int[]> sectionRows = new SparseArray<>();
+
+	// span boundaries across the cross axis, and the cross axis extent they were computed for
+	private int[] spanBorders;
+	private int spanBordersExtent = -1;
+
+	/**
+	 * @param spanCount number of columns in the grid
+	 */
+	public StickyHeaderGridLayoutManager(int spanCount) {
+		setSpanCount(spanCount);
+	}
+
+	/**
+	 * @param spanCount   number of columns in the grid, or of rows in horizontal orientation
+	 * @param orientation RecyclerView.VERTICAL or RecyclerView.HORIZONTAL
+	 */
+	public StickyHeaderGridLayoutManager(int spanCount, int orientation) {
+		super(orientation);
+		setSpanCount(spanCount);
+	}
+
+	public int getSpanCount() {
+		return spanCount;
+	}
+
+	/**
+	 * @param spanCount number of columns in the grid, or of rows in horizontal orientation
+	 */
+	public void setSpanCount(int spanCount) {
+		if (spanCount < 1) {
+			throw new IllegalArgumentException("spanCount must be at least 1, got: " + spanCount);
+		}
+
+		if (spanCount != this.spanCount) {
+			this.spanCount = spanCount;
+			spanBordersExtent = -1;
+			invalidateSectionRows();
+			requestLayout();
+		}
+	}
+
+	public SpanSizeLookup getSpanSizeLookup() {
+		return spanSizeLookup;
+	}
+
+	/**
+	 * Assign the lookup which determines how many spans each item occupies. If null, each item occupies one span.
+	 *
+	 * @param spanSizeLookup the lookup
+	 */
+	public void setSpanSizeLookup(SpanSizeLookup spanSizeLookup) {
+		this.spanSizeLookup = spanSizeLookup;
+		invalidateSectionRows();
+		requestLayout();
+	}
+
+	/**
+	 * Discard cached row layouts, e.g., when the span sizes returned by the SpanSizeLookup change
+	 * without the adapter being notified.
+	 */
+	public void invalidateSpanSizes() {
+		invalidateSectionRows();
+		requestLayout();
+	}
+
+	@Override
+	public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+		super.onAdapterChanged(oldAdapter, newAdapter);
+		invalidateSectionRows();
+	}
+
+	@Override
+	public void onItemsChanged(RecyclerView recyclerView) {
+		super.onItemsChanged(recyclerView);
+		invalidateSectionRows();
+	}
+
+	@Override
+	public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+		super.onItemsAdded(recyclerView, positionStart, itemCount);
+		invalidateSectionRows();
+	}
+
+	@Override
+	public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+		super.onItemsRemoved(recyclerView, positionStart, itemCount);
+		invalidateSectionRows();
+	}
+
+	@Override
+	public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+		super.onItemsUpdated(recyclerView, positionStart, itemCount);
+		invalidateSectionRows();
+	}
+
+	@Override
+	public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+		super.onItemsMoved(recyclerView, from, to, itemCount);
+		invalidateSectionRows();
+	}
+
+	@Override
+	int getRowStartAdapterPosition(int adapterPosition) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		int sectionIndex = adapter.getSectionForAdapterPosition(adapterPosition);
+		int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, adapterPosition);
+		return adapterPosition - itemIndex + getRowStartItemIndex(sectionIndex, itemIndex);
+	}
+
+	@Override
+	int getRowEndAdapterPosition(int adapterPosition) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		int sectionIndex = adapter.getSectionForAdapterPosition(adapterPosition);
+		int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, adapterPosition);
+		int numberOfItems = adapter.getNumberOfItemsInSection(sectionIndex);
+
+		if (spanSizeLookup == null) {
+			int rowEnd = Math.min(itemIndex - itemIndex % spanCount + spanCount, numberOfItems);
+			return adapterPosition - itemIndex + rowEnd;
+		}
+
+		int[] rows = getSectionRows(sectionIndex);
+		int rowStart = rows[itemIndex * 2];
+		int rowEnd = itemIndex + 1;
+		while (rowEnd < numberOfItems && rows[rowEnd * 2] == rowStart) {
+			rowEnd++;
+		}
+
+		return adapterPosition - itemIndex + rowEnd;
+	}
+
+	@Override
+	int getItemAdvanceForFixedHeight(int fixedHeight) {
+		// an estimate: it assumes full rows, so the partly filled last row of each section and span sizes are ignored
+		return fixedHeight / spanCount;
+	}
+
+	@Override
+	void measureRowItem(View view, int adapterPosition) {
+		updateSpanBorders();
+
+		int crossAxisUsed = spanBordersExtent - getSpanWidth(adapterPosition);
+		if (getOrientation() == RecyclerView.VERTICAL) {
+			measureVendedChild(view, crossAxisUsed, 0);
+		} else {
+			measureVendedChild(view, 0, crossAxisUsed);
+		}
+	}
+
+	@Override
+	void layoutRowItem(View view, int adapterPosition, int start, int end) {
+		updateSpanBorders();
+
+		SectioningAdapter adapter = getSectioningAdapter();
+		int sectionIndex = adapter.getSectionForAdapterPosition(adapterPosition);
+		int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, adapterPosition);
+		int spanIndex = getSpanIndex(sectionIndex, itemIndex);
+		int spanSize = getSpanSize(sectionIndex, itemIndex);
+
+		int crossStart = getCrossAxisStartPadding() + spanBorders[spanIndex];
+		int crossEnd = getCrossAxisStartPadding() + spanBorders[spanIndex + spanSize];
+		layoutChild(view, start, end, crossStart, crossEnd);
+	}
+
+	private int getSpanWidth(int adapterPosition) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		int sectionIndex = adapter.getSectionForAdapterPosition(adapterPosition);
+		int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, adapterPosition);
+		int spanIndex = getSpanIndex(sectionIndex, itemIndex);
+		return spanBorders[spanIndex + getSpanSize(sectionIndex, itemIndex)] - spanBorders[spanIndex];
+	}
+
+	private int getSpanSize(int sectionIndex, int itemIndex) {
+		if (spanSizeLookup == null) {
+			return 1;
+		}
+
+		// clamp, so a bad lookup can't push items outside the grid
+		return Math.max(1, Math.min(spanSizeLookup.getSpanSize(sectionIndex, itemIndex), spanCount));
+	}
+
+	private int getRowStartItemIndex(int sectionIndex, int itemIndex) {
+		if (spanSizeLookup == null) {
+			return itemIndex - itemIndex % spanCount;
+		}
+
+		return getSectionRows(sectionIndex)[itemIndex * 2];
+	}
+
+	private int getSpanIndex(int sectionIndex, int itemIndex) {
+		if (spanSizeLookup == null) {
+			return itemIndex % spanCount;
+		}
+
+		return getSectionRows(sectionIndex)[itemIndex * 2 + 1];
+	}
+
+	/**
+	 * Get the row layout of a section, computing it if it's not cached. Items fill a row until the next one
+	 * doesn't fit, at which point it starts a new row.
+	 */
+	private int[] getSectionRows(int sectionIndex) {
+		int[] rows = sectionRows.get(sectionIndex);
+		if (rows != null) {
+			return rows;
+		}
+
+		int numberOfItems = getSectioningAdapter().getNumberOfItemsInSection(sectionIndex);
+		rows = new int[numberOfItems * 2];
+
+		int rowStart = 0;
+		int spanIndex = 0;
+		for (int i = 0; i < numberOfItems; i++) {
+			int spanSize = getSpanSize(sectionIndex, i);
+			if (spanIndex + spanSize > spanCount) {
+				rowStart = i;
+				spanIndex = 0;
+			}
+
+			rows[i * 2] = rowStart;
+			rows[i * 2 + 1] = spanIndex;
+			spanIndex += spanSize;
+		}
+
+		sectionRows.put(sectionIndex, rows);
+		return rows;
+	}
+
+	private void invalidateSectionRows() {
+		sectionRows.clear();
+	}
+
+	/**
+	 * Divide the cross axis between the spans, distributing any remainder so the spans fill it exactly
+	 */
+	private void updateSpanBorders() {
+		int extent = Math.max(0, getCrossAxisExtent());
+		if (extent == spanBordersExtent && spanBorders != null) {
+			return;
+		}
+
+		if (spanBorders == null || spanBorders.length != spanCount + 1) {
+			spanBorders = new int[spanCount + 1];
+		}
+
+		for (int i = 0; i <= spanCount; i++) {
+			spanBorders[i] = (int) ((long) extent * i / spanCount);
+		}
+
+		spanBordersExtent = extent;
+	}
+}
@@ -2,9 +2,13 @@ package org.zakariya.stickyheaders;
 
 import android.content.Context;
 import android.graphics.PointF;
+import android.graphics.Rect;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -12,15 +16,19 @@ import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.LinearSmoothScroller;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * StickyHeaderLayoutManager
  * Provides equivalent behavior to a simple LinearLayoutManager, but where section header items
  * are positioned in a "sticky" manner like the section headers in iOS's UITableView.
  * StickyHeaderLayoutManager MUST be used in conjunction with SectioningAdapter.
+ * <p/>
+ * Lays out vertically by default; in RecyclerView.HORIZONTAL orientation, sections run left to right and
+ * headers stick to the left edge. Internally, "top" and "bottom" refer to the leading and trailing edges
+ * along the scrolling axis, whichever the orientation.
  *
  * @see SectioningAdapter
  */
@@ -53,18 +61,113 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		void onHeaderPositionChanged(int sectionIndex, View header, HeaderPosition oldPosition, HeaderPosition newPosition);
 	}
 
+	/**
+	 * Estimates the heights of views which haven't been laid out, so scroll offset and range can be computed
+	 * for scrollbars and fast scrolling without measuring off-screen items.
+	 *
+	 * @see #setExtentEstimator(ExtentEstimator)
+	 */
+	public interface ExtentEstimator {
+		/**
+		 * Called the first time each view which takes up space in the list is laid out at its adapter position;
+		 * relayouts and scrolling back over a view don't measure it again.
+		 *
+		 * @param baseType the view's base type; TYPE_GHOST_HEADER (which has its header's height), TYPE_ITEM or TYPE_FOOTER
+		 * @param height   the view's decorated height
+		 */
+		void onViewMeasured(int baseType, int height);
+
+		/**
+		 * @param baseType TYPE_GHOST_HEADER, TYPE_ITEM or TYPE_FOOTER
+		 * @return the estimated decorated height of a view of that base type
+		 */
+		int getEstimatedHeight(int baseType);
+
+		/**
+		 * Called when the adapter changes, to discard measurements
+		 */
+		void reset();
+	}
+
+	/**
+	 * The default ExtentEstimator; estimates each base type's height as the average of the heights
+	 * measured so far for that type, or of all types if none of that type have been measured.
+	 */
+	public static class AverageExtentEstimator implements ExtentEstimator {
+
+		private static final int NUMBER_OF_BASE_TYPES = 4;
+
+		private long[] heightSums = new long[NUMBER_OF_BASE_TYPES];
+		private int[] counts = new int[NUMBER_OF_BASE_TYPES];
+
+		@Override
+		public void onViewMeasured(int baseType, int height) {
+			heightSums[baseType] += height;
+			counts[baseType]++;
+		}
+
+		@Override
+		public int getEstimatedHeight(int baseType) {
+			if (counts[baseType] > 0) {
+				return (int) (heightSums[baseType] / counts[baseType]);
+			}
+
+			long heightSum = 0;
+			int count = 0;
+			for (int i = 0; i < NUMBER_OF_BASE_TYPES; i++) {
+				heightSum += heightSums[i];
+				count += counts[i];
+			}
+
+			return count > 0 ? (int) (heightSum / count) : 0;
+		}
+
+		@Override
+		public void reset() {
+			Arrays.fill(heightSums, 0);
+			Arrays.fill(counts, 0);
+		}
+	}
+
 	private static final String TAG = StickyHeaderLayoutManager.class.getSimpleName();
 
 	private SectioningAdapter adapter;
 
-	// holds all the visible section headers
-	private HashSet<View> headerViews = new HashSet<>();
+	// holds all the visible section headers, and the same headers by section index
+	private ArrayList<View> headerViews = new ArrayList<>();
+	private SparseArray<View> headerViewsBySection = new SparseArray<>();
+
+	// holds all the attached views other than headers, ordered top to bottom. Since headers are
+	// reordered with bringToFront, child order can't be used to find the topmost and bottommost views
+	private ArrayList<View> contentViews = new ArrayList<>();
+
+	// reusable scratch storage for updateHeaderPositions; the section of each child,
+	// and per section (relative to the first visible section) the header, ghost header and first non-header view
+	private int[] childSections = new int[16];
+	private View[] sectionHeaderViews = new View[16];
+	private View[] sectionGhostHeaderViews = new View[16];
+	private View[] sectionFirstViews = new View[16];
 
 	// holds the HeaderPosition for each header
-	private HashMap<Integer, HeaderPosition> headerPositionsBySection = new HashMap<>();
+	private SparseArray<HeaderPosition> headerPositionsBySection = new SparseArray<>();
+
+	// reusable scratch storage for recycleViewsOutOfBounds
+	private SparseBooleanArray remainingSections = new SparseBooleanArray();
+	private ArrayList<View> viewsToRecycle = new ArrayList<>();
+
+	// reusable scratch storage for layoutDisappearingViews
+	private ArrayList<View> disappearingViews = new ArrayList<>();
 
 	private HeaderPositionChangedCallback headerPositionChangedCallback;
 
+	private ExtentEstimator extentEstimator = new AverageExtentEstimator();
+
+	// adapter positions whose views have been reported to extentEstimator
+	private IntervalSet estimatedPositions = new IntervalSet();
+
+	// reusable storage for the number of views of each base type before an adapter position
+	private int[] itemCounts = new int[4];
+
 	// adapter position of first (lowest-y-value) visible item.
 	private int firstViewAdapterPosition;
 
@@ -76,14 +179,237 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 	private SavedState pendingSavedState;
 
+	// number of items to prefetch when this layout manager's RecyclerView is nested in another
+	private int initialPrefetchItemCount = 2;
+
+	// RecyclerView.VERTICAL or RecyclerView.HORIZONTAL
+	private int orientation = RecyclerView.VERTICAL;
+
+	// if true, layout anchors to the end of the list rather than the start
+	private boolean stackFromEnd;
+
+	// true if the last item was at the end of the list when last laid out or scrolled
+	private boolean pinnedToEnd = true;
+
+	// true during the pre-layout pass, whose positions are positions before the change, so what's measured
+	// then mustn't be recorded against them
+	private boolean inPreLayout;
+
+	// measured sizes of views by position or stable id; null unless enabled
+	private MeasuredSizeCache measuredSizeCache;
+	private Rect decorInsets = new Rect();
+
+	// declared fixed heights, by base type for all user types, and by packed view type for one user type; 0 if not declared
+	private int[] fixedHeightsByBaseType = new int[4];
+	private SparseIntArray fixedHeightsByViewType = new SparseIntArray();
+
 
 	public StickyHeaderLayoutManager() {
 	}
 
+	/**
+	 * @param orientation RecyclerView.VERTICAL or RecyclerView.HORIZONTAL
+	 */
+	public StickyHeaderLayoutManager(int orientation) {
+		setOrientation(orientation);
+	}
+
+	/**
+	 * @return the layout orientation, RecyclerView.VERTICAL or RecyclerView.HORIZONTAL
+	 */
+	public int getOrientation() {
+		return orientation;
+	}
+
+	/**
+	 * Set the layout orientation. In RecyclerView.HORIZONTAL orientation sections are laid out left to right,
+	 * and section headers stick to the left edge. Defaults to RecyclerView.VERTICAL.
+	 *
+	 * @param orientation RecyclerView.VERTICAL or RecyclerView.HORIZONTAL
+	 */
+	public void setOrientation(int orientation) {
+		if (orientation != RecyclerView.VERTICAL && orientation != RecyclerView.HORIZONTAL) {
+			throw new IllegalArgumentException("invalid orientation: " + orientation);
+		}
+
+		if (orientation != this.orientation) {
+			this.orientation = orientation;
+			extentEstimator.reset();
+			estimatedPositions.clear();
+			requestLayout();
+		}
+	}
+
 	public HeaderPositionChangedCallback getHeaderPositionChangedCallback() {
 		return headerPositionChangedCallback;
 	}
 
+	public ExtentEstimator getExtentEstimator() {
+		return extentEstimator;
+	}
+
+	/**
+	 * Assign the estimator used to compute the scroll offset and range reported to scrollbars and fast scrollers.
+	 * By default an AverageExtentEstimator is used.
+	 *
+	 * @param extentEstimator the estimator
+	 * @see AverageExtentEstimator
+	 */
+	public void setExtentEstimator(ExtentEstimator extentEstimator) {
+		if (extentEstimator == null) {
+			throw new IllegalArgumentException("extentEstimator cannot be null");
+		}
+		this.extentEstimator = extentEstimator;
+		estimatedPositions.clear();
+	}
+
+	public boolean getStackFromEnd() {
+		return stackFromEnd;
+	}
+
+	/**
+	 * When stackFromEnd is true, the list is anchored to its end, as in a chat: it's initially laid out
+	 * filling upward from the last item, content shorter than the list sits at the bottom, and while the
+	 * last item is at the bottom of the list, items added after it keep the list scrolled to the end.
+	 * Defaults to false.
+	 *
+	 * @param stackFromEnd if true, anchor the list to its end
+	 */
+	public void setStackFromEnd(boolean stackFromEnd) {
+		if (stackFromEnd != this.stackFromEnd) {
+			this.stackFromEnd = stackFromEnd;
+			pinnedToEnd = true;
+			requestLayout();
+		}
+	}
+
+	/**
+	 * Declare that every header, item or footer has the same fixed height (width, in horizontal orientation).
+	 * Views of that base type are measured at exactly that height, and skip measuring entirely if they're already
+	 * measured and haven't requested layout. Scroll offsets, ranges and getSectionForScrollFraction are then computed
+	 * by arithmetic over the section index rather than from measured averages. For this layout manager the result
+	 * is exact, except for space added by item decorations along the layout axis. The grid layout managers divide
+	 * an item's height between the columns of its row, so for them it remains an estimate: partly filled rows at the
+	 * end of each section, and span sizes, aren't accounted for.
+	 *
+	 * @param baseType SectioningAdapter.TYPE_HEADER, TYPE_ITEM or TYPE_FOOTER
+	 * @param height   the height in pixels, or 0 to clear the declaration
+	 */
+	public void setFixedHeight(int baseType, int height) {
+		checkFixedHeightBaseType(baseType);
+		if (height < 0) {
+			throw new IllegalArgumentException("height must be >= 0, got: " + height);
+		}
+
+		fixedHeightsByBaseType[baseType] = height;
+		requestLayout();
+	}
+
+	/**
+	 * Declare that headers, items or footers of one user type have a fixed height (width, in horizontal orientation).
+	 * Views of that type are measured at exactly that height, and skip measuring entirely if they're already measured
+	 * and haven't requested layout. Since the section index doesn't count user types, scroll offsets are still estimated;
+	 * declare a height for the whole base type with setFixedHeight(int, int) to compute them exactly.
+	 *
+	 * @param baseType SectioningAdapter.TYPE_HEADER, TYPE_ITEM or TYPE_FOOTER
+	 * @param userType the user type, as returned by SectioningAdapter.getSectionHeaderUserType, etc.
+	 * @param height   the height in pixels, or 0 to clear the declaration
+	 */
+	public void setFixedHeight(int baseType, int userType, int height) {
+		checkFixedHeightBaseType(baseType);
+		if (userType < 0 || userType > 0xFF) {
+			throw new IllegalArgumentException("userType (" + userType + ") must be in range [0,255]");
+		}
+		if (height < 0) {
+			throw new IllegalArgumentException("height must be >= 0, got: " + height);
+		}
+
+		int viewType = ((userType & 0xFF) << 8) | (baseType & 0xFF);
+		if (height > 0) {
+			fixedHeightsByViewType.put(viewType, height);
+		} else {
+			fixedHeightsByViewType.delete(viewType);
+		}
+		requestLayout();
+	}
+
+	/**
+	 * @param baseType SectioningAdapter.TYPE_HEADER, TYPE_ITEM or TYPE_FOOTER
+	 * @return the fixed height declared for every view of that base type, or 0 if none
+	 */
+	public int getFixedHeight(int baseType) {
+		checkFixedHeightBaseType(baseType);
+		return fixedHeightsByBaseType[baseType];
+	}
+
+	/**
+	 * Remove all fixed height declarations
+	 */
+	public void clearFixedHeights() {
+		Arrays.fill(fixedHeightsByBaseType, 0);
+		fixedHeightsByViewType.clear();
+		requestLayout();
+	}
+
+	private static void checkFixedHeightBaseType(int baseType) {
+		if (baseType != SectioningAdapter.TYPE_HEADER && baseType != SectioningAdapter.TYPE_ITEM && baseType != SectioningAdapter.TYPE_FOOTER) {
+			throw new IllegalArgumentException("baseType must be TYPE_HEADER, TYPE_ITEM or TYPE_FOOTER, got: " + baseType);
+		}
+	}
+
+	public boolean isMeasuredSizeCacheEnabled() {
+		return measuredSizeCache != null;
+	}
+
+	/**
+	 * Enable caching of the measured sizes of views. When a view is vended for an item whose size is cached, it's
+	 * measured at exactly that size, in a single pass; if the view is already that size and hasn't requested layout,
+	 * e.g., when it comes back from the recycler without being rebound, measuring is skipped entirely.
+	 * <p/>
+	 * Sizes are keyed by stable id if the adapter has stable ids, otherwise by adapter position, and always by view type
+	 * and available width. They're invalidated by the adapter's change notifications, so changes to an item's content
+	 * must be notified, e.g., with SectioningAdapter.notifySectionItemChanged. Disabled by default.
+	 *
+	 * @param enabled if true, cache measured sizes
+	 */
+	public void setMeasuredSizeCacheEnabled(boolean enabled) {
+		if (enabled && measuredSizeCache == null) {
+			measuredSizeCache = new MeasuredSizeCache();
+		} else if (!enabled) {
+			measuredSizeCache = null;
+		}
+	}
+
+	/**
+	 * Discard all cached measured sizes, e.g., when item content changed without the adapter being notified
+	 */
+	public void invalidateMeasuredSizes() {
+		if (measuredSizeCache != null) {
+			measuredSizeCache.clear();
+		}
+	}
+
+	/**
+	 * @return the number of items prefetched by collectInitialPrefetchPositions
+	 * @see #setInitialPrefetchItemCount(int)
+	 */
+	public int getInitialPrefetchItemCount() {
+		return initialPrefetchItemCount;
+	}
+
+	/**
+	 * Set the number of items to prefetch when this layout manager's RecyclerView is nested in another scrolling
+	 * RecyclerView and is about to scroll on screen. Should be the number of items visible when it first appears,
+	 * e.g., 4 if the nested list shows four and a half items. A section header and its ghost header count as one.
+	 * Defaults to 2.
+	 *
+	 * @param itemCount number of items to prefetch
+	 * @see RecyclerView.LayoutManager#collectInitialPrefetchPositions(int, LayoutPrefetchRegistry)
+	 */
+	public void setInitialPrefetchItemCount(int itemCount) {
+		initialPrefetchItemCount = itemCount;
+	}
+
 	/**
 	 * Assign callback object to be notified when a header view position changes between states of the HeaderPosition enum
 	 *
@@ -94,6 +420,13 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		this.headerPositionChangedCallback = headerPositionChangedCallback;
 	}
 
+	/**
+	 * @return the adapter this layout manager is laying out, or null if not attached to one
+	 */
+	SectioningAdapter getSectioningAdapter() {
+		return adapter;
+	}
+
 	@Override
 	public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
 		super.onAdapterChanged(oldAdapter, newAdapter);
@@ -105,8 +438,76 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		}
 
 		removeAllViews();
-		headerViews.clear();
+		clearChildModel();
 		headerPositionsBySection.clear();
+		extentEstimator.reset();
+		estimatedPositions.clear();
+		pinnedToEnd = true;
+		invalidateMeasuredSizes();
+	}
+
+	@Override
+	public void onItemsChanged(RecyclerView recyclerView) {
+		invalidateMeasuredSizes();
+		estimatedPositions.clear();
+	}
+
+	@Override
+	public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+		invalidateMeasuredSizesFrom(positionStart);
+		estimatedPositions.shift(positionStart, itemCount);
+	}
+
+	@Override
+	public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+		invalidateMeasuredSizesFrom(positionStart);
+		estimatedPositions.shift(positionStart, -itemCount);
+	}
+
+	@Override
+	public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount, Object payload) {
+		// a selection change only rebinds the selection state, which doesn't change the rows' sizes, so keep
+		// what's been measured for them; this applies to subclasses' onItemsUpdated overrides too
+		if (payload != SectioningAdapter.SELECTION_CHANGED) {
+			onItemsUpdated(recyclerView, positionStart, itemCount);
+		}
+	}
+
+	@Override
+	public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+		if (measuredSizeCache == null) {
+			return;
+		}
+
+		if (adapter != null && adapter.hasStableIds()) {
+			for (int p = positionStart, end = Math.min(positionStart + itemCount, adapter.getItemCount()); p < end; p++) {
+				measuredSizeCache.remove(adapter.getItemId(p));
+			}
+		} else {
+			measuredSizeCache.removeKeys(positionStart, (long) positionStart + itemCount);
+		}
+	}
+
+	@Override
+	public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+		invalidateMeasuredSizesFrom(Math.min(from, to));
+
+		boolean estimated = estimatedPositions.contains(from);
+		estimatedPositions.shift(from, -itemCount);
+		estimatedPositions.shift(to, itemCount);
+		if (estimated) {
+			estimatedPositions.add(to, to + itemCount);
+		}
+	}
+
+	/**
+	 * Positions from positionStart on have shifted, so sizes keyed by those positions are no longer valid;
+	 * sizes keyed by stable id still are
+	 */
+	private void invalidateMeasuredSizesFrom(int positionStart) {
+		if (measuredSizeCache != null && (adapter == null || !adapter.hasStableIds())) {
+			measuredSizeCache.removeKeysFrom(positionStart);
+		}
 	}
 
 	@Override
@@ -140,6 +541,7 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		SavedState state = new SavedState();
 		state.firstViewAdapterPosition = firstViewAdapterPosition;
 		state.firstViewTop = firstViewTop;
+		state.pinnedToEnd = pinnedToEnd;
 
 		return state;
 	}
@@ -165,11 +567,28 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			return;
 		}
 
+		if (state.isPreLayout()) {
+			inPreLayout = true;
+			layoutForPreLayout(recycler, state);
+			inPreLayout = false;
+			return;
+		}
+
 		if (adapter.getItemCount() == 0) {
 			removeAndRecycleAllViews(recycler);
+			clearChildModel();
 			return;
 		}
 
+		if (stackFromEnd && scrollTargetAdapterPosition < 0) {
+			boolean restoring = pendingSavedState != null && pendingSavedState.isValid();
+			if (restoring ? pendingSavedState.pinnedToEnd : pinnedToEnd) {
+				pendingSavedState = null;
+				layoutFromEnd(recycler, state);
+				return;
+			}
+		}
+
 		if (scrollTargetAdapterPosition >= 0) {
 			firstViewAdapterPosition = scrollTargetAdapterPosition;
 			firstViewTop = 0;
@@ -185,14 +604,12 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		int top = firstViewTop;
 
 		// RESET
-		headerViews.clear();
+		clearChildModel();
 		headerPositionsBySection.clear();
 		detachAndScrapAttachedViews(recycler);
 
 		int height;
-		int left = getPaddingLeft();
-		int right = getWidth() - getPaddingRight();
-		int parentBottom = getHeight() - getPaddingBottom();
+		int parentBottom = getLayoutExtent() - getEndPadding();
 		int totalVendedHeight = 0;
 
 		// If we emptied the view with a notify, we may overshoot and fail to draw
@@ -200,63 +617,579 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			firstViewAdapterPosition = state.getItemCount() - 1;
 		}
 
+		// layout starts at the beginning of a row
+		if (adapter.getItemViewBaseType(firstViewAdapterPosition) == SectioningAdapter.TYPE_ITEM) {
+			firstViewAdapterPosition = getRowStartAdapterPosition(firstViewAdapterPosition);
+		}
+
 		// walk through adapter starting at firstViewAdapterPosition stacking each vended item
 		for (int adapterPosition = firstViewAdapterPosition; adapterPosition < state.getItemCount(); adapterPosition++) {
 
 			View v = recycler.getViewForPosition(adapterPosition);
-			addView(v);
-			measureChildWithMargins(v, 0, 0);
-
 			int itemViewType = getViewBaseType(v);
+			if (itemViewType != SectioningAdapter.TYPE_ITEM) {
+				addView(v);
+				measureVendedChild(v, 0, 0);
+			}
+
 			if (itemViewType == SectioningAdapter.TYPE_HEADER) {
-				headerViews.add(v);
+				addHeaderViewToChildModel(v);
 
 				// use the header's height
-				height = getDecoratedMeasuredHeight(v);
-				layoutDecorated(v, left, top, right, top + height);
+				height = getViewMeasurement(v);
+				layoutChild(v, top, top + height);
 
 				// we need to vend the ghost header and position/size it same as the actual header
 				adapterPosition++;
 				View ghostHeader = recycler.getViewForPosition(adapterPosition);
 				addView(ghostHeader);
-				layoutDecorated(ghostHeader, left, top, right, top + height);
+				contentViews.add(ghostHeader);
+				layoutChild(ghostHeader, top, top + height);
+				onViewMeasured(adapterPosition, SectioningAdapter.TYPE_GHOST_HEADER, height);
 
 			} else if (itemViewType == SectioningAdapter.TYPE_GHOST_HEADER) {
 
 				// we need to back up and get the header for this ghostHeader
+				contentViews.add(v);
 				View headerView = recycler.getViewForPosition(adapterPosition - 1);
-				headerViews.add(headerView);
+				addHeaderViewToChildModel(headerView);
 				addView(headerView);
-				measureChildWithMargins(headerView, 0, 0);
-				height = getDecoratedMeasuredHeight(headerView);
-
-				layoutDecorated(headerView, left, top, right, top + height);
-				layoutDecorated(v, left, top, right, top + height);
-
+				measureVendedChild(headerView, 0, 0);
+				height = getViewMeasurement(headerView);
+
+				layoutChild(headerView, top, top + height);
+				layoutChild(v, top, top + height);
+				onViewMeasured(adapterPosition, SectioningAdapter.TYPE_GHOST_HEADER, height);
+
+			} else if (itemViewType == SectioningAdapter.TYPE_ITEM) {
+				int rowEnd = Math.min(getRowEndAdapterPosition(adapterPosition), state.getItemCount());
+				height = addItemRow(recycler, v, adapterPosition, rowEnd, top, false);
+				adapterPosition = rowEnd - 1;
+				v = contentViews.get(contentViews.size() - 1);
 			} else {
-				height = getDecoratedMeasuredHeight(v);
-				layoutDecorated(v, left, top, right, top + height);
+				contentViews.add(v);
+				height = getViewMeasurement(v);
+				layoutChild(v, top, top + height);
+				onViewMeasured(adapterPosition, itemViewType, height);
 			}
 
 			top += height;
 			totalVendedHeight += height;
 
-			// if the item we just laid out falls off the bottom of the view, we're done
-			if (v.getBottom() >= parentBottom) {
+			// if the item we just laid out falls off the bottom of the view, we're done. Items in a row may hang
+			// past the row's end, so for rows check where the next view would go instead
+			if (itemViewType == SectioningAdapter.TYPE_ITEM ? top >= parentBottom : getViewUndecoratedEnd(v) >= parentBottom) {
 				break;
 			}
 		}
 
 		// determine if scrolling is necessary to fill viewport
-		int innerHeight = getHeight() - (getPaddingTop() + getPaddingBottom());
+		int innerHeight = getLayoutExtent() - (getStartPadding() + getEndPadding());
 		if (totalVendedHeight < innerHeight) {
+			if (stackFromEnd) {
+				// we ran out of items, so the list sits at the bottom
+				layoutFromEnd(recycler, state);
+				return;
+			}
+
 			// note: we're passing null for RecyclerView.State - this is "safe"
 			// only because we don't use it for scrolling negative dy
-			scrollVerticallyBy(totalVendedHeight - innerHeight, recycler, null);
+			scrollBy(totalVendedHeight - innerHeight, recycler, null);
 		} else {
 			// no scroll correction necessary, so position headers
 			updateHeaderPositions(recycler);
 		}
+
+		pinnedToEnd = isLastItemAtEnd();
+
+		if (state.willRunPredictiveAnimations()) {
+			layoutDisappearingViews(recycler);
+		}
+	}
+
+	/**
+	 * Lay out the list anchored to its end, vending views upward from the last item until the top is reached.
+	 * Only the views which end up on screen are vended, however long the list.
+	 */
+	private void layoutFromEnd(RecyclerView.Recycler recycler, RecyclerView.State state) {
+		clearChildModel();
+		headerPositionsBySection.clear();
+		detachAndScrapAttachedViews(recycler);
+
+		int start = getStartPadding();
+		int edge = getLayoutExtent() - getEndPadding();
+
+		firstViewAdapterPosition = state.getItemCount();
+		while (edge > start) {
+			View v = addViewAbove(recycler, edge);
+			if (v == null) {
+				break;
+			}
+			edge = getViewStart(v);
+		}
+
+		View topmostView = getTopmostChildView();
+		if (topmostView != null) {
+			firstViewAdapterPosition = getViewAdapterPosition(topmostView);
+			firstViewTop = getViewStart(topmostView);
+		}
+
+		updateHeaderPositions(recycler);
+		pinnedToEnd = true;
+
+		if (state.willRunPredictiveAnimations()) {
+			layoutDisappearingViews(recycler);
+		}
+	}
+
+	/**
+	 * @return true if the last item is laid out, and ends within the list
+	 */
+	private boolean isLastItemAtEnd() {
+		View bottomView = getBottommostChildView();
+		return bottomView != null
+				&& getViewAdapterPosition(bottomView) == adapter.getItemCount() - 1
+				&& getTrailingEdge(bottomView) <= getLayoutExtent();
+	}
+
+	@Override
+	public boolean supportsPredictiveItemAnimations() {
+		return true;
+	}
+
+	/**
+	 * The pre-layout pass records where views are before an animated change. The attached views are already where
+	 * they were before the change, so leave them be; but the space freed by removed views will be filled by views
+	 * currently below the bottom of the list, so lay those out too, giving them a position to animate in from.
+	 */
+	private void layoutForPreLayout(RecyclerView.Recycler recycler, RecyclerView.State state) {
+		ensureChildModel();
+		if (contentViews.isEmpty()) {
+			return;
+		}
+
+		int removedHeight = 0;
+		for (int i = 0, n = contentViews.size(); i < n; i++) {
+			View view = contentViews.get(i);
+			if (((RecyclerView.LayoutParams) view.getLayoutParams()).isItemRemoved()) {
+				removedHeight += getViewEnd(view) - getViewStart(view);
+			}
+		}
+
+		if (removedHeight == 0) {
+			return;
+		}
+
+		int limit = getLayoutExtent() - getEndPadding() + removedHeight;
+
+		// positions in pre-layout are positions before the change
+		View bottomView = contentViews.get(contentViews.size() - 1);
+		int top = getTrailingEdge(bottomView);
+		int position = getPosition(bottomView) + 1;
+
+		while (top < limit && position < state.getItemCount()) {
+			View v = recycler.getViewForPosition(position++);
+
+			if (getViewBaseType(v) == SectioningAdapter.TYPE_ITEM && isAdapterItem(position - 1)) {
+				// positions are pre-layout positions, so the row may not match the adapter's rows exactly;
+				// close enough to animate from
+				int rowLimit = Math.min(getRowEndAdapterPosition(position - 1), state.getItemCount());
+				int rowEnd = position;
+				while (rowEnd < rowLimit && isAdapterItem(rowEnd)) {
+					rowEnd++;
+				}
+				top += addItemRow(recycler, v, position - 1, rowEnd, top, false);
+				position = rowEnd;
+				continue;
+			}
+
+			addView(v);
+			int height;
+			if (getViewBaseType(v) == SectioningAdapter.TYPE_GHOST_HEADER && position >= 2) {
+				// a ghost header has its header's height. Reuse the header if it's already laid out, as
+				// createSectionHeaderIfNeeded does, else vend it from the position before its ghost header
+				View headerView = findPreLayoutHeaderView(position - 2);
+				if (headerView == null) {
+					headerView = recycler.getViewForPosition(position - 2);
+					addView(headerView);
+					measureVendedChild(headerView, 0, 0);
+					addPreLayoutHeaderView(headerView);
+					layoutChild(headerView, top, top + getViewMeasurement(headerView));
+				}
+				height = getViewMeasurement(headerView);
+			} else {
+				measureVendedChild(v, 0, 0);
+				height = getViewMeasurement(v);
+			}
+
+			if (getViewBaseType(v) == SectioningAdapter.TYPE_HEADER) {
+				addPreLayoutHeaderView(v);
+				layoutChild(v, top, top + height);
+
+				// a header is always followed by its ghost header
+				if (position >= state.getItemCount()) {
+					break;
+				}
+				v = recycler.getViewForPosition(position++);
+				addView(v);
+			}
+
+			contentViews.add(v);
+			layoutChild(v, top, top + height);
+			top += height;
+		}
+	}
+
+	/**
+	 * @param position a pre-layout adapter position
+	 * @return the header view laid out at that position, or null if there isn't one
+	 */
+	private View findPreLayoutHeaderView(int position) {
+		for (int i = 0, n = headerViews.size(); i < n; i++) {
+			View headerView = headerViews.get(i);
+			if (getPosition(headerView) == position) {
+				return headerView;
+			}
+		}
+		return null;
+	}
+
+	private void addPreLayoutHeaderView(View headerView) {
+		// a removed header has no section to be indexed by
+		if (isViewRecycled(headerView)) {
+			headerViews.add(headerView);
+		} else {
+			addHeaderViewToChildModel(headerView);
+		}
+	}
+
+	/**
+	 * After the post-layout pass, views which are still in the adapter but were not laid out have been pushed
+	 * off screen by the change. Lay them out as disappearing views just past the top or bottom of the list, so
+	 * they animate out of view rather than fading out in place.
+	 */
+	private void layoutDisappearingViews(RecyclerView.Recycler recycler) {
+		if (contentViews.isEmpty()) {
+			return;
+		}
+
+		int firstPosition = getPosition(contentViews.get(0));
+		int lastPosition = getPosition(contentViews.get(contentViews.size() - 1));
+
+		// collect first, since adding a disappearing view removes it from the scrap list
+		List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+		for (int i = 0, n = scrapList.size(); i < n; i++) {
+			RecyclerView.ViewHolder holder = scrapList.get(i);
+			View view = holder.itemView;
+
+			// removed views animate out in place; floating headers are positioned by updateHeaderPositions
+			if (((RecyclerView.LayoutParams) view.getLayoutParams()).isItemRemoved() || getViewBaseType(view) == SectioningAdapter.TYPE_HEADER) {
+				continue;
+			}
+
+			int position = holder.getLayoutPosition();
+			if (position < firstPosition || position > lastPosition) {
+				disappearingViews.add(view);
+			}
+		}
+
+		if (disappearingViews.isEmpty()) {
+			return;
+		}
+
+		// order by position, so views stack in adapter order
+		for (int i = 1, n = disappearingViews.size(); i < n; i++) {
+			View view = disappearingViews.get(i);
+			int position = getPosition(view);
+			int j = i - 1;
+			while (j >= 0 && getPosition(disappearingViews.get(j)) > position) {
+				disappearingViews.set(j + 1, disappearingViews.get(j));
+				j--;
+			}
+			disappearingViews.set(j + 1, view);
+		}
+
+
+		// views after the last laid out view stack downwards from the bottom
+		int bottom = getTrailingEdge(contentViews.get(contentViews.size() - 1));
+		for (int i = 0, n = disappearingViews.size(); i < n; i++) {
+			View view = disappearingViews.get(i);
+			if (getPosition(view) > lastPosition) {
+				int height = measureDisappearingView(view);
+				layoutDisappearingView(view, bottom, bottom + height);
+				bottom += height;
+			}
+		}
+
+		// views before the first laid out view stack upwards from the top
+		int top = getViewStart(contentViews.get(0));
+		for (int i = disappearingViews.size() - 1; i >= 0; i--) {
+			View view = disappearingViews.get(i);
+			if (getPosition(view) < firstPosition) {
+				int height = measureDisappearingView(view);
+				layoutDisappearingView(view, top - height, top);
+				top -= height;
+			}
+		}
+
+		disappearingViews.clear();
+	}
+
+	private int measureDisappearingView(View view) {
+		addDisappearingView(view);
+
+		// ghost headers take their header's height, which they still have from their last layout
+		if (getViewBaseType(view) == SectioningAdapter.TYPE_GHOST_HEADER) {
+			return getViewEnd(view) - getViewStart(view);
+		}
+
+		if (getViewBaseType(view) == SectioningAdapter.TYPE_ITEM && isAdapterItem(getPosition(view))) {
+			measureRowItem(view, getPosition(view));
+		} else {
+			measureVendedChild(view, 0, 0);
+		}
+		return getViewMeasurement(view);
+	}
+
+	private void layoutDisappearingView(View view, int start, int end) {
+		if (getViewBaseType(view) == SectioningAdapter.TYPE_ITEM && isAdapterItem(getPosition(view))) {
+			layoutRowItem(view, getPosition(view), start, end);
+		} else {
+			layoutChild(view, start, end);
+		}
+	}
+
+	private boolean isAdapterItem(int adapterPosition) {
+		return adapterPosition >= 0 && adapterPosition < adapter.getItemCount()
+				&& adapter.getItemViewBaseType(adapterPosition) == SectioningAdapter.TYPE_ITEM;
+	}
+
+	/**
+	 * Add, measure and lay out a row of items. Views are added to the end of the child model, or to the start if above is true.
+	 *
+	 * @param recycler              the recycler
+	 * @param firstView             the already vended view for firstAdapterPosition
+	 * @param firstAdapterPosition  adapter position of the first item in the row
+	 * @param endAdapterPosition    adapter position following the last item in the row
+	 * @param edge                  the row's top, or if above is true, its bottom
+	 * @param above                 if true, the row is laid out above edge and added before the other views
+	 * @return the row's advance, the distance from its top to where the next view goes
+	 */
+	private int addItemRow(RecyclerView.Recycler recycler, View firstView, int firstAdapterPosition, int endAdapterPosition, int edge, boolean above) {
+		int count = endAdapterPosition - firstAdapterPosition;
+		int firstIndex = above ? 0 : contentViews.size();
+		int height = 0;
+
+		for (int i = 0; i < count; i++) {
+			View v = i == 0 ? firstView : recycler.getViewForPosition(firstAdapterPosition + i);
+			if (above) {
+				addView(v, i);
+				contentViews.add(i, v);
+			} else {
+				addView(v);
+				contentViews.add(v);
+			}
+
+			measureRowItem(v, firstAdapterPosition + i);
+			height = Math.max(height, getViewMeasurement(v));
+		}
+
+		// subclasses track their rows by adapter position, which pre-layout positions aren't
+		int advance = inPreLayout ? height : getRowAdvance(recycler, firstAdapterPosition, endAdapterPosition, height);
+		int top = above ? edge - advance : edge;
+		for (int i = 0; i < count; i++) {
+			layoutRowItem(contentViews.get(firstIndex + i), firstAdapterPosition + i, top, top + height);
+
+			// scroll estimates count items, not rows, so share the row's advance between its items
+			onViewMeasured(firstAdapterPosition + i, SectioningAdapter.TYPE_ITEM, advance / count);
+		}
+
+		return advance;
+	}
+
+	/**
+	 * @param view a laid out view
+	 * @return where the view following this one starts; for items, where the next row starts
+	 */
+	private int getTrailingEdge(View view) {
+		return getViewBaseType(view) == SectioningAdapter.TYPE_ITEM ? getItemRowEnd(view) : getViewEnd(view);
+	}
+
+	/**
+	 * Items are laid out in rows; by default each row holds a single item filling the width of the list.
+	 * Subclasses laying out multiple items per row override getRowStartAdapterPosition, getRowEndAdapterPosition,
+	 * measureRowItem and layoutRowItem; subclasses whose rows overlap also override getRowAdvance, getItemRowEnd
+	 * and rowsOverlap.
+	 * These are only called for the adapter positions of items.
+	 *
+	 * @param adapterPosition adapter position of an item
+	 * @return adapter position of the first item in the same row
+	 */
+	int getRowStartAdapterPosition(int adapterPosition) {
+		return adapterPosition;
+	}
+
+	/**
+	 * @param adapterPosition adapter position of an item
+	 * @return adapter position following the last item in the same row
+	 * @see #getRowStartAdapterPosition(int)
+	 */
+	int getRowEndAdapterPosition(int adapterPosition) {
+		return adapterPosition + 1;
+	}
+
+	/**
+	 * Measure an item which has been added to the layout
+	 *
+	 * @param view            the item's view
+	 * @param adapterPosition adapter position of the item
+	 * @see #getRowStartAdapterPosition(int)
+	 */
+	void measureRowItem(View view, int adapterPosition) {
+		measureVendedChild(view, 0, 0);
+	}
+
+	/**
+	 * Lay out a measured item between start and end along the layout axis
+	 *
+	 * @param view            the item's view
+	 * @param adapterPosition adapter position of the item
+	 * @param start           the top of the item's row
+	 * @param end             the bottom of the item's row
+	 * @see #getRowStartAdapterPosition(int)
+	 */
+	void layoutRowItem(View view, int adapterPosition, int start, int end) {
+		layoutChild(view, start, end);
+	}
+
+	/**
+	 * Determine how far a row advances the layout, i.e., the distance from its top to the top of the view following it.
+	 * By default, the row's height.
+	 *
+	 * @param recycler             the recycler, should more views need to be measured
+	 * @param firstAdapterPosition adapter position of the first item in the row
+	 * @param endAdapterPosition   adapter position following the last item in the row
+	 * @param rowHeight            the height of the tallest item in the row
+	 * @return the row's advance
+	 * @see #getRowStartAdapterPosition(int)
+	 */
+	int getRowAdvance(RecyclerView.Recycler recycler, int firstAdapterPosition, int endAdapterPosition, int rowHeight) {
+		return rowHeight;
+	}
+
+	/**
+	 * @param view a laid out item view
+	 * @return where the row following the item's row starts; by default the item's bottom
+	 * @see #getRowAdvance(RecyclerView.Recycler, int, int, int)
+	 */
+	int getItemRowEnd(View view) {
+		return getViewEnd(view);
+	}
+
+	/**
+	 * @return true if rows overlap, so the first and last items in adapter order needn't be the topmost and
+	 * bottommost; by default false
+	 */
+	boolean rowsOverlap() {
+		return false;
+	}
+
+	/**
+	 * Measure a child which has been added to the layout, using its declared fixed height, or its cached size
+	 * if the measured size cache is enabled and this isn't the pre-layout pass
+	 *
+	 * @param view       the child to measure
+	 * @param widthUsed  width already consumed, e.g., by other columns
+	 * @param heightUsed height already consumed
+	 * @see #setFixedHeight(int, int)
+	 * @see #setMeasuredSizeCacheEnabled(boolean)
+	 */
+	void measureVendedChild(View view, int widthUsed, int heightUsed) {
+		RecyclerView.ViewHolder holder = getViewViewHolder(view);
+		int fixedHeight = getFixedHeight(holder);
+		if (fixedHeight > 0) {
+			measureChildWithFixedHeight(view, widthUsed, heightUsed, fixedHeight);
+			return;
+		}
+
+		if (measuredSizeCache == null || inPreLayout) {
+			measureChildWithMargins(view, widthUsed, heightUsed);
+			return;
+		}
+
+		long key = adapter.hasStableIds() ? holder.getItemId() : getPosition(view);
+		int viewType = holder.getItemViewType();
+		int availableSpace = orientation == RecyclerView.VERTICAL ? getWidth() - widthUsed : getHeight() - heightUsed;
+
+		long size = measuredSizeCache.get(key, viewType, availableSpace);
+		if (size == MeasuredSizeCache.NO_SIZE) {
+			measureChildWithMargins(view, widthUsed, heightUsed);
+
+			// bound the cache, since sizes keyed by stable ids of removed items are never invalidated
+			if (measuredSizeCache.size() >= Math.max(256, 2 * adapter.getItemCount())) {
+				measuredSizeCache.clear();
+			}
+			measuredSizeCache.put(key, viewType, availableSpace, view.getMeasuredWidth(), view.getMeasuredHeight());
+			return;
+		}
+
+		// decoration insets are computed as part of measuring, so bring them up to date
+		calculateItemDecorationsForChild(view, decorInsets);
+
+		int width = MeasuredSizeCache.getWidth(size);
+		int height = MeasuredSizeCache.getHeight(size);
+		if (view.isLayoutRequested() || view.getMeasuredWidth() != width || view.getMeasuredHeight() != height) {
+			view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+					View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+		}
+	}
+
+	private int getFixedHeight(RecyclerView.ViewHolder holder) {
+		int viewType = holder.getItemViewType();
+		int baseType = SectioningAdapter.unmaskBaseViewType(viewType);
+		if (baseType == SectioningAdapter.TYPE_GHOST_HEADER) {
+			// ghost headers take their header's height, and are cheap to measure anyway
+			return 0;
+		}
+		return fixedHeightsByViewType.get(viewType, fixedHeightsByBaseType[baseType]);
+	}
+
+	private void measureChildWithFixedHeight(View view, int widthUsed, int heightUsed, int fixedHeight) {
+		calculateItemDecorationsForChild(view, decorInsets);
+		RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+
+		int widthSpec;
+		int heightSpec;
+		int crossAxisSpec;
+		int crossAxisMeasured;
+		int measured;
+		if (orientation == RecyclerView.VERTICAL) {
+			widthSpec = getChildMeasureSpec(getWidth(), getWidthMode(),
+					getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin + decorInsets.left + decorInsets.right + widthUsed,
+					lp.width, false);
+			heightSpec = View.MeasureSpec.makeMeasureSpec(fixedHeight, View.MeasureSpec.EXACTLY);
+			crossAxisSpec = widthSpec;
+			crossAxisMeasured = view.getMeasuredWidth();
+			measured = view.getMeasuredHeight();
+		} else {
+			widthSpec = View.MeasureSpec.makeMeasureSpec(fixedHeight, View.MeasureSpec.EXACTLY);
+			heightSpec = getChildMeasureSpec(getHeight(), getHeightMode(),
+					getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin + decorInsets.top + decorInsets.bottom + heightUsed,
+					lp.height, false);
+			crossAxisSpec = heightSpec;
+			crossAxisMeasured = view.getMeasuredHeight();
+			measured = view.getMeasuredWidth();
+		}
+
+		// a view which is already exactly the right size needn't be measured again
+		boolean upToDate = !view.isLayoutRequested()
+				&& measured == fixedHeight
+				&& View.MeasureSpec.getMode(crossAxisSpec) == View.MeasureSpec.EXACTLY
+				&& View.MeasureSpec.getSize(crossAxisSpec) == crossAxisMeasured;
+
+		if (!upToDate) {
+			view.measure(widthSpec, heightSpec);
+		}
 	}
 
 	/**
@@ -271,39 +1204,54 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		if (adapter.doesSectionHaveHeader(sectionIndex)) {
 
 			// first, see if we've already got a header for this section
-			for (int i = 0, n = getChildCount(); i < n; i++) {
-				View view = getChildAt(i);
-				if (getViewBaseType(view) == SectioningAdapter.TYPE_HEADER && getViewSectionIndex(view) == sectionIndex) {
-					return view;
-				}
+			View existingHeaderView = headerViewsBySection.get(sectionIndex);
+			if (existingHeaderView != null) {
+				return existingHeaderView;
 			}
 
 			// looks like we need to create one
-			int headerAdapterPosition = adapter.getAdapterPositionForSectionHeader(sectionIndex);
-			View headerView = recycler.getViewForPosition(headerAdapterPosition);
-			headerViews.add(headerView);
-			addView(headerView);
-			measureChildWithMargins(headerView, 0, 0);
-
-			return headerView;
+			return createSectionHeader(recycler, sectionIndex);
 		} else {
 			throw new IllegalStateException("createSectionHeaderIfNeeded should not be called for a section which does not have a header");
 		}
 	}
 
+	private View createSectionHeader(RecyclerView.Recycler recycler, int sectionIndex) {
+		int headerAdapterPosition = adapter.getAdapterPositionForSectionHeader(sectionIndex);
+		View headerView = recycler.getViewForPosition(headerAdapterPosition);
+		addHeaderViewToChildModel(headerView);
+		addView(headerView);
+		measureVendedChild(headerView, 0, 0);
+
+		return headerView;
+	}
+
 
 	@Override
 	public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+		return orientation == RecyclerView.VERTICAL ? scrollBy(dy, recycler, state) : 0;
+	}
+
+	@Override
+	public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state) {
+		return orientation == RecyclerView.HORIZONTAL ? scrollBy(dx, recycler, state) : 0;
+	}
 
-		//Log.i(TAG, "scrollVerticallyBy: dy: " + dy + " getChildCount: " + getChildCount() + " adapter count: " + adapter.getItemCount());
+	/**
+	 * Scroll along the layout axis, vending and recycling views as needed
+	 *
+	 * @param dy distance to scroll; positive values move content towards the top (or left)
+	 * @return the distance actually scrolled
+	 */
+	private int scrollBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
 
 		if (getChildCount() == 0) {
 			return 0;
 		}
 
+		ensureChildModel();
+
 		int scrolled = 0;
-		int left = getPaddingLeft();
-		int right = getWidth() - getPaddingRight();
 
 
 		if (dy < 0) {
@@ -318,146 +1266,475 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			while (scrolled > dy) {
 
 				// get the topmost view
-				int hangingTop = Math.max(-getDecoratedTop(topView), 0);
+				int hangingTop = Math.max(-getViewStart(topView), 0);
 				int scrollBy = Math.min(scrolled - dy, hangingTop); // scrollBy is positive, causing content to move downwards
 
 				scrolled -= scrollBy;
-				offsetChildrenVertical(scrollBy);
+				offsetChildren(scrollBy);
+
+				// vend next view above topView
+				if (scrolled > dy) {
+					View v = addViewAbove(recycler, getViewStart(topView));
+					if (v == null) {
+						break;
+					}
+					topView = v;
+				} else {
+					break;
+				}
+
+			}
+
+		} else {
+
+			// content moving up, we're headed to bottom of list
+
+			int parentHeight = getLayoutExtent();
+			View bottomView = getBottommostChildView();
+			if (bottomView == null) {
+				return 0;
+			}
+
+			while (scrolled < dy) {
+				int hangingBottom = Math.max(getTrailingEdge(bottomView) - parentHeight, 0);
+				int scrollBy = -Math.min(dy - scrolled, hangingBottom);
+				scrolled -= scrollBy;
+				offsetChildren(scrollBy);
+
+				// vend next view below bottomView
+				if (scrolled < dy) {
+					View v = addViewBelow(recycler, bottomView, state.getItemCount());
+					if (v == null) {
+						break;
+					}
+					bottomView = v;
+				} else {
+					break;
+				}
+			}
+		}
+
+		View topmostView = getTopmostChildView();
+		if (topmostView != null) {
+			firstViewTop = getViewStart(topmostView);
+		}
+
+		updateHeaderPositions(recycler);
+		recycleViewsOutOfBounds(recycler);
+		pinnedToEnd = isLastItemAtEnd();
+		return scrolled;
+	}
+
+	/**
+	 * Vend the view above firstViewAdapterPosition, skipping headers, and lay it out with its bottom at edge.
+	 * Decrements firstViewAdapterPosition to the vended view's position.
+	 *
+	 * @param recycler the recycler
+	 * @param edge     the bottom of the view to vend
+	 * @return the vended view, now the topmost, or null if there's nothing to vend
+	 */
+	private View addViewAbove(RecyclerView.Recycler recycler, int edge) {
+		if (firstViewAdapterPosition <= 0) {
+			return null;
+		}
+
+		firstViewAdapterPosition--;
+
+		// we're skipping headers. they should already be vended, but if we're vending a ghostHeader
+		// here an actual header will be vended if needed for measurement
+		int itemViewType = adapter.getItemViewBaseType(firstViewAdapterPosition);
+		boolean isHeader = itemViewType == SectioningAdapter.TYPE_HEADER;
+
+		// skip the header, move to next item above
+		if (isHeader) {
+			firstViewAdapterPosition--;
+			if (firstViewAdapterPosition < 0) {
+				return null;
+			}
+
+			itemViewType = adapter.getItemViewBaseType(firstViewAdapterPosition);
+			isHeader = itemViewType == SectioningAdapter.TYPE_HEADER;
+
+			// If it's still a header, we don't need to do anything right now
+			if (isHeader)
+				return null;
+		}
+
+		if (itemViewType == SectioningAdapter.TYPE_ITEM) {
+			int rowStart = getRowStartAdapterPosition(firstViewAdapterPosition);
+			View v = recycler.getViewForPosition(rowStart);
+			addItemRow(recycler, v, rowStart, firstViewAdapterPosition + 1, edge, true);
+			firstViewAdapterPosition = rowStart;
+			return v;
+		}
+
+		View v = recycler.getViewForPosition(firstViewAdapterPosition);
+		addView(v, 0);
+		contentViews.add(0, v);
+
+		int bottom = edge;
+		int top;
+		boolean isGhostHeader = itemViewType == SectioningAdapter.TYPE_GHOST_HEADER;
+		if (isGhostHeader) {
+			View header = createSectionHeaderIfNeeded(recycler, adapter.getSectionForAdapterPosition(firstViewAdapterPosition));
+			top = bottom - getViewMeasurement(header); // header is already measured
+		} else {
+			measureVendedChild(v, 0, 0);
+			top = bottom - getViewMeasurement(v);
+		}
+
+		layoutChild(v, top, bottom);
+		onViewMeasured(firstViewAdapterPosition, itemViewType, bottom - top);
+		return v;
+	}
+
+	/**
+	 * Vend the view following bottomView and lay it out below it
+	 *
+	 * @param recycler   the recycler
+	 * @param bottomView the bottommost view
+	 * @param itemCount  the number of items in the adapter
+	 * @return the vended view, now the bottommost, or null if there's nothing to vend
+	 */
+	private View addViewBelow(RecyclerView.Recycler recycler, View bottomView, int itemCount) {
+		int adapterPosition = getViewAdapterPosition(bottomView);
+		int nextAdapterPosition = adapterPosition + 1;
+		if (nextAdapterPosition >= itemCount) {
+			return null;
+		}
+
+		int top = getTrailingEdge(bottomView);
+
+		int itemViewType = adapter.getItemViewBaseType(nextAdapterPosition);
+		if (itemViewType == SectioningAdapter.TYPE_HEADER) {
+
+			// get the header and measure it so we can followup immediately by vending the ghost header
+			View headerView = createSectionHeaderIfNeeded(recycler, adapter.getSectionForAdapterPosition(nextAdapterPosition));
+			int height = getViewMeasurement(headerView);
+			layoutChild(headerView, 0, height);
+
+			// but we need to vend the followup ghost header too
+			nextAdapterPosition++;
+			View ghostHeader = recycler.getViewForPosition(nextAdapterPosition);
+			addView(ghostHeader);
+			contentViews.add(ghostHeader);
+			layoutChild(ghostHeader, top, top + height);
+			onViewMeasured(nextAdapterPosition, SectioningAdapter.TYPE_GHOST_HEADER, height);
+			return ghostHeader;
+
+		} else if (itemViewType == SectioningAdapter.TYPE_GHOST_HEADER) {
+
+			// get the header and measure it so we can followup immediately by vending the ghost header
+			View headerView = createSectionHeaderIfNeeded(recycler, adapter.getSectionForAdapterPosition(nextAdapterPosition));
+			int height = getViewMeasurement(headerView);
+			layoutChild(headerView, 0, height);
+
+			// but we need to vend the followup ghost header too
+			View ghostHeader = recycler.getViewForPosition(nextAdapterPosition);
+			addView(ghostHeader);
+			contentViews.add(ghostHeader);
+			layoutChild(ghostHeader, top, top + height);
+			onViewMeasured(nextAdapterPosition, SectioningAdapter.TYPE_GHOST_HEADER, height);
+			return ghostHeader;
+
+		} else if (itemViewType == SectioningAdapter.TYPE_ITEM) {
+
+			int rowEnd = Math.min(getRowEndAdapterPosition(nextAdapterPosition), itemCount);
+			View v = recycler.getViewForPosition(nextAdapterPosition);
+			addItemRow(recycler, v, nextAdapterPosition, rowEnd, top, false);
+			return contentViews.get(contentViews.size() - 1);
+
+		} else {
+
+			View v = recycler.getViewForPosition(nextAdapterPosition);
+			addView(v);
+			contentViews.add(v);
+
+			measureVendedChild(v, 0, 0);
+			int height = getViewMeasurement(v);
+			layoutChild(v, top, top + height);
+			onViewMeasured(nextAdapterPosition, itemViewType, height);
+			return v;
+		}
+	}
+
+	@Override
+	public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+		return orientation == RecyclerView.VERTICAL
+				? new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT)
+				: new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
+	}
+
+	@Override
+	public boolean canScrollVertically() {
+		return orientation == RecyclerView.VERTICAL;
+	}
+
+	@Override
+	public boolean canScrollHorizontally() {
+		return orientation == RecyclerView.HORIZONTAL;
+	}
+
+	/**
+	 * Scroll so that a section starts at the top of the list, with its header (if it has one) pinned there.
+	 * The list is laid out directly at the section, without measuring the items between.
+	 *
+	 * @param sectionIndex index of the section to scroll to
+	 */
+	public void scrollToSection(int sectionIndex) {
+		if (adapter == null) {
+			return;
+		}
+
+		scrollToPosition(adapter.getAdapterPosition(sectionIndex, 0));
+	}
+
+	/**
+	 * Find the section at the top of the list when scrolled to a fraction of the scroll range, as reported to
+	 * scrollbars by computeVerticalScrollOffset and computeVerticalScrollRange (or their horizontal equivalents). Use with scrollToSection to
+	 * implement a section fast scroller. Sections are found by binary search over their estimated offsets,
+	 * so this is O(log S) in the number of sections.
+	 *
+	 * @param fraction scroll fraction, from 0 (top) to 1 (bottom)
+	 * @return the index of the section at that fraction, or SectioningAdapter.NO_POSITION if the adapter has no sections
+	 */
+	public int getSectionForScrollFraction(float fraction) {
+		if (adapter == null || adapter.getNumberOfSections() == 0) {
+			return SectioningAdapter.NO_POSITION;
+		}
 
-				// vend next view above topView
+		// the same range scrollbars are given, so a fraction maps to the section the scrollbar shows there
+		int numberOfSections = adapter.getNumberOfSections();
+		long scrollRange = Math.max(0, computeScrollRange() - computeScrollExtent());
+		long target = (long) (Math.max(0, Math.min(1, fraction)) * scrollRange);
+
+		// find the last section starting at or above target
+		int low = 0;
+		int high = numberOfSections - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			adapter.countItemsBeforeSection(mid, itemCounts);
+			if (getEstimatedHeight(itemCounts) <= target) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
 
-				if (firstViewAdapterPosition > 0 && scrolled > dy) {
-					firstViewAdapterPosition--;
+		return low;
+	}
 
-					// we're skipping headers. they should already be vended, but if we're vending a ghostHeader
-					// here an actual header will be vended if needed for measurement
-					int itemViewType = adapter.getItemViewBaseType(firstViewAdapterPosition);
-					boolean isHeader = itemViewType == SectioningAdapter.TYPE_HEADER;
+	@Override
+	public int computeVerticalScrollOffset(RecyclerView.State state) {
+		return orientation == RecyclerView.VERTICAL ? computeScrollOffset() : 0;
+	}
 
-					// skip the header, move to next item above
-					if (isHeader) {
-						firstViewAdapterPosition--;
-						if (firstViewAdapterPosition < 0) {
-							break;
-						}
+	@Override
+	public int computeVerticalScrollExtent(RecyclerView.State state) {
+		return orientation == RecyclerView.VERTICAL ? computeScrollExtent() : 0;
+	}
 
-						itemViewType = adapter.getItemViewBaseType(firstViewAdapterPosition);
-						isHeader = itemViewType == SectioningAdapter.TYPE_HEADER;
+	@Override
+	public int computeVerticalScrollRange(RecyclerView.State state) {
+		return orientation == RecyclerView.VERTICAL ? computeScrollRange() : 0;
+	}
 
-						// If it's still a header, we don't need to do anything right now
-						if (isHeader)
-							break;
-					}
+	@Override
+	public int computeHorizontalScrollOffset(RecyclerView.State state) {
+		return orientation == RecyclerView.HORIZONTAL ? computeScrollOffset() : 0;
+	}
 
-					View v = recycler.getViewForPosition(firstViewAdapterPosition);
-					addView(v, 0);
-
-					int bottom = getDecoratedTop(topView);
-					int top;
-					boolean isGhostHeader = itemViewType == SectioningAdapter.TYPE_GHOST_HEADER;
-					if (isGhostHeader) {
-						View header = createSectionHeaderIfNeeded(recycler, adapter.getSectionForAdapterPosition(firstViewAdapterPosition));
-						top = bottom - getDecoratedMeasuredHeight(header); // header is already measured
-					} else {
-						measureChildWithMargins(v, 0, 0);
-						top = bottom - getDecoratedMeasuredHeight(v);
-					}
+	@Override
+	public int computeHorizontalScrollExtent(RecyclerView.State state) {
+		return orientation == RecyclerView.HORIZONTAL ? computeScrollExtent() : 0;
+	}
 
-					layoutDecorated(v, left, top, right, bottom);
-					topView = v;
+	@Override
+	public int computeHorizontalScrollRange(RecyclerView.State state) {
+		return orientation == RecyclerView.HORIZONTAL ? computeScrollRange() : 0;
+	}
 
-				} else {
-					break;
-				}
+	private int computeScrollOffset() {
+		View topView = getTopmostChildView();
+		if (adapter == null || topView == null) {
+			return 0;
+		}
 
-			}
+		// the estimated height of everything above the topmost view, plus how far that view is scrolled up
+		adapter.countItemsBeforeAdapterPosition(getViewAdapterPosition(topView), itemCounts);
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(0, getEstimatedHeight(itemCounts) + getStartPadding() - getViewStart(topView)));
+	}
 
-		} else {
+	private int computeScrollExtent() {
+		return getChildCount() > 0 ? getLayoutExtent() : 0;
+	}
 
-			// content moving up, we're headed to bottom of list
+	private int computeScrollRange() {
+		if (adapter == null || getChildCount() == 0) {
+			return 0;
+		}
 
-			int parentHeight = getHeight();
-			View bottomView = getBottommostChildView();
-			if (bottomView == null) {
-				return 0;
-			}
+		adapter.countItemsBeforeAdapterPosition(adapter.getItemCount(), itemCounts);
+		long range = getEstimatedHeight(itemCounts) + getStartPadding() + getEndPadding();
 
-			while (scrolled < dy) {
-				int hangingBottom = Math.max(getDecoratedBottom(bottomView) - parentHeight, 0);
-				int scrollBy = -Math.min(dy - scrolled, hangingBottom);
-				scrolled -= scrollBy;
-				offsetChildrenVertical(scrollBy);
+		// the estimate may undershoot what's actually laid out
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(range, (long) computeScrollOffset() + getLayoutExtent()));
+	}
 
-				int adapterPosition = getViewAdapterPosition(bottomView);
-				int nextAdapterPosition = adapterPosition + 1;
+	private long getEstimatedHeight(int[] itemCounts) {
+		// headers float over their ghost headers, so don't take up space of their own. Summed in long, since
+		// a long list's estimated height can exceed an int
+		return (long) itemCounts[SectioningAdapter.TYPE_GHOST_HEADER] * getEstimatedHeight(SectioningAdapter.TYPE_GHOST_HEADER)
+				+ (long) itemCounts[SectioningAdapter.TYPE_ITEM] * getEstimatedHeight(SectioningAdapter.TYPE_ITEM)
+				+ (long) itemCounts[SectioningAdapter.TYPE_FOOTER] * getEstimatedHeight(SectioningAdapter.TYPE_FOOTER);
+	}
 
-				if (scrolled < dy && nextAdapterPosition < state.getItemCount()) {
+	/**
+	 * Report a view's measured height to extentEstimator, if it's the first time its adapter position is measured
+	 * outside pre-layout
+	 */
+	private void onViewMeasured(int adapterPosition, int baseType, int height) {
+		if (!inPreLayout && !estimatedPositions.contains(adapterPosition)) {
+			estimatedPositions.add(adapterPosition, adapterPosition + 1);
+			extentEstimator.onViewMeasured(baseType, height);
+		}
+	}
 
-					int top = getDecoratedBottom(bottomView);
+	private int getEstimatedHeight(int baseType) {
+		// ghost headers have their header's height
+		int fixedHeight = fixedHeightsByBaseType[baseType == SectioningAdapter.TYPE_GHOST_HEADER ? SectioningAdapter.TYPE_HEADER : baseType];
+		if (fixedHeight > 0) {
+			return baseType == SectioningAdapter.TYPE_ITEM ? getItemAdvanceForFixedHeight(fixedHeight) : fixedHeight;
+		}
+		return extentEstimator.getEstimatedHeight(baseType);
+	}
 
-					int itemViewType = adapter.getItemViewBaseType(nextAdapterPosition);
-					if (itemViewType == SectioningAdapter.TYPE_HEADER) {
+	/**
+	 * Scroll offsets count items, not rows; so for items with a declared fixed height, determine the share of
+	 * a row's advance attributable to each item. By default, rows hold one item, so this is the fixed height and
+	 * offsets are exact. Subclasses with multi-item rows return an average, making offsets an estimate.
+	 *
+	 * @param fixedHeight the declared fixed height of items
+	 * @return the advance per item
+	 * @see #getRowAdvance(RecyclerView.Recycler, int, int, int)
+	 */
+	int getItemAdvanceForFixedHeight(int fixedHeight) {
+		return fixedHeight;
+	}
 
-						// get the header and measure it so we can followup immediately by vending the ghost header
-						View headerView = createSectionHeaderIfNeeded(recycler, adapter.getSectionForAdapterPosition(nextAdapterPosition));
-						int height = getDecoratedMeasuredHeight(headerView);
-						layoutDecorated(headerView, left, 0, right, height);
+	@Override
+	public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+		if (orientation == RecyclerView.HORIZONTAL) {
+			dy = dx;
+		}
 
-						// but we need to vend the followup ghost header too
-						nextAdapterPosition++;
-						View ghostHeader = recycler.getViewForPosition(nextAdapterPosition);
-						addView(ghostHeader);
-						layoutDecorated(ghostHeader, left, top, right, top + height);
-						bottomView = ghostHeader;
+		if (dy == 0 || adapter == null || getChildCount() == 0) {
+			return;
+		}
 
-					} else if (itemViewType == SectioningAdapter.TYPE_GHOST_HEADER) {
+		int itemCount = Math.min(state.getItemCount(), adapter.getItemCount());
 
-						// get the header and measure it so we can followup immediately by vending the ghost header
-						View headerView = createSectionHeaderIfNeeded(recycler, adapter.getSectionForAdapterPosition(nextAdapterPosition));
-						int height = getDecoratedMeasuredHeight(headerView);
-						layoutDecorated(headerView, left, 0, right, height);
+		if (dy > 0) {
+			// the next view to be vended below the bottommost view
+			View bottomView = getBottommostChildView();
+			if (bottomView == null) {
+				return;
+			}
 
-						// but we need to vend the followup ghost header too
-						View ghostHeader = recycler.getViewForPosition(nextAdapterPosition);
-						addView(ghostHeader);
-						layoutDecorated(ghostHeader, left, top, right, top + height);
-						bottomView = ghostHeader;
+			int adapterPosition = getViewAdapterPosition(bottomView) + 1;
+			if (adapterPosition >= itemCount) {
+				return;
+			}
 
-					} else {
+			int distance = Math.max(0, getTrailingEdge(bottomView) - getLayoutExtent());
+			addPrefetchPosition(adapterPosition, itemCount, distance, layoutPrefetchRegistry);
+		} else {
+			// the next view to be vended above the topmost view, skipping headers the same way scrollBy does
+			View topView = getTopmostChildView();
+			if (topView == null) {
+				return;
+			}
 
-						View v = recycler.getViewForPosition(nextAdapterPosition);
-						addView(v);
+			int adapterPosition = getViewAdapterPosition(topView) - 1;
+			if (adapterPosition >= 0 && adapter.getItemViewBaseType(adapterPosition) == SectioningAdapter.TYPE_HEADER) {
+				adapterPosition--;
+			}
+			if (adapterPosition < 0) {
+				return;
+			}
 
-						measureChildWithMargins(v, 0, 0);
-						int height = getDecoratedMeasuredHeight(v);
-						layoutDecorated(v, left, top, right, top + height);
-						bottomView = v;
-					}
+			int distance = Math.max(0, getStartPadding() - getViewStart(topView));
+			if (adapter.getItemViewBaseType(adapterPosition) == SectioningAdapter.TYPE_ITEM) {
+				// the position is the last item of its row; the whole row will be vended with it
+				addPrefetchPosition(getRowStartAdapterPosition(adapterPosition), itemCount, distance, layoutPrefetchRegistry);
+			} else {
+				addPrefetchPosition(adapterPosition, itemCount, distance, layoutPrefetchRegistry);
+			}
 
-				} else {
-					break;
-				}
+			// scrolling up into a new section will make that section's header sticky
+			int sectionIndex = adapter.getSectionForAdapterPosition(adapterPosition);
+			if (sectionIndex != getViewSectionIndex(topView) && adapter.doesSectionHaveHeader(sectionIndex)) {
+				layoutPrefetchRegistry.addPosition(adapter.getAdapterPositionForSectionHeader(sectionIndex), distance);
 			}
 		}
+	}
 
-		View topmostView = getTopmostChildView();
-		if (topmostView != null) {
-			firstViewTop = getDecoratedTop(topmostView);
+	@Override
+	public void collectInitialPrefetchPositions(int adapterItemCount, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+		if (adapter == null || initialPrefetchItemCount <= 0) {
+			return;
 		}
 
-		updateHeaderPositions(recycler);
-		recycleViewsOutOfBounds(recycler);
-		return scrolled;
-	}
+		int itemCount = Math.min(adapterItemCount, adapter.getItemCount());
 
-	@Override
-	public RecyclerView.LayoutParams generateDefaultLayoutParams() {
-		return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+		// prefetch from where the next layout will start
+		int adapterPosition = firstViewAdapterPosition;
+		if (scrollTargetAdapterPosition >= 0) {
+			adapterPosition = scrollTargetAdapterPosition;
+		} else if (pendingSavedState != null && pendingSavedState.isValid()) {
+			adapterPosition = pendingSavedState.firstViewAdapterPosition;
+		}
+
+		for (int i = 0; i < initialPrefetchItemCount && adapterPosition >= 0 && adapterPosition < itemCount; i++) {
+			adapterPosition = addPrefetchPosition(adapterPosition, itemCount, 0, layoutPrefetchRegistry);
+		}
 	}
 
-	@Override
-	public boolean canScrollVertically() {
-		return true;
+	/**
+	 * Register an adapter position for prefetch, pairing headers and ghost headers since they're always vended together
+	 *
+	 * @param adapterPosition        the position to prefetch
+	 * @param itemCount              the number of items in the adapter
+	 * @param distance               the distance in pixels before the position is scrolled on screen
+	 * @param layoutPrefetchRegistry the registry to add positions to
+	 * @return the adapter position following the positions registered
+	 */
+	private int addPrefetchPosition(int adapterPosition, int itemCount, int distance, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+		switch (adapter.getItemViewBaseType(adapterPosition)) {
+			case SectioningAdapter.TYPE_HEADER:
+				layoutPrefetchRegistry.addPosition(adapterPosition, distance);
+				if (adapterPosition + 1 < itemCount) {
+					layoutPrefetchRegistry.addPosition(adapterPosition + 1, distance);
+				}
+				return adapterPosition + 2;
+
+			case SectioningAdapter.TYPE_GHOST_HEADER:
+				layoutPrefetchRegistry.addPosition(adapterPosition - 1, distance);
+				layoutPrefetchRegistry.addPosition(adapterPosition, distance);
+				return adapterPosition + 1;
+
+			case SectioningAdapter.TYPE_ITEM:
+				// prefetch the rest of the item's row, which will be vended with it
+				int rowEnd = Math.min(getRowEndAdapterPosition(adapterPosition), itemCount);
+				for (int p = adapterPosition; p < rowEnd; p++) {
+					layoutPrefetchRegistry.addPosition(p, distance);
+				}
+				return Math.max(rowEnd, adapterPosition + 1);
+
+			default:
+				layoutPrefetchRegistry.addPosition(adapterPosition, distance);
+				return adapterPosition + 1;
+		}
 	}
 
 	@Override
@@ -511,16 +1788,21 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		if (baseType != SectioningAdapter.TYPE_HEADER) {
 			SectioningAdapter.HeaderViewHolder firstHeader = getFirstVisibleHeaderViewHolder(false);
 			if (firstHeader != null) {
-				firstHeaderBottom = getDecoratedBottom(firstHeader.itemView);
+				firstHeaderBottom = getViewEnd(firstHeader.itemView);
 			}
 		}
 
-		// note: We can't use child view order because we muck with moving things to front
+		// headers are few, and reordered with bringToFront, so check them all. Other views
+		// are ordered top to bottom, so unless rows overlap the first which passes the filters is the topmost
+		ensureChildModel();
+		boolean checkAll = baseType == SectioningAdapter.TYPE_HEADER || rowsOverlap();
+		boolean headers = baseType == SectioningAdapter.TYPE_HEADER;
+		ArrayList<View> views = headers ? headerViews : contentViews;
 		View topmostView = null;
 		int top = Integer.MAX_VALUE;
 
-		for (int i = 0, e = getChildCount(); i < e; i++) {
-			View v = getChildAt(i);
+		for (int i = 0, e = views.size(); i < e; i++) {
+			View v = views.get(i);
 
 			// ignore views which are being deleted
 			if (getViewAdapterPosition(v) == RecyclerView.NO_POSITION) {
@@ -533,8 +1815,8 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			}
 
 			// filter out items which are partially or fully obscured by a header
-			int t = getDecoratedTop(v);
-			int b = getDecoratedBottom(v);
+			int t = getViewStart(v);
+			int b = getViewEnd(v);
 
 			if (fullyVisibleOnly) {
 				if (t < firstHeaderBottom) {
@@ -549,6 +1831,9 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			if (t < top) {
 				top = t;
 				topmostView = v;
+				if (!checkAll) {
+					break;
+				}
 			}
 		}
 
@@ -588,14 +1873,19 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			return null;
 		}
 
-		final int height = getHeight();
+		final int height = getLayoutExtent();
 
-		// note: We can't use child view order because we muck with moving things to front
+		// headers are few, and reordered with bringToFront, so check them all. Other views
+		// are ordered top to bottom, so unless rows overlap the last which passes the filters is the bottommost
+		ensureChildModel();
+		boolean checkAll = baseType == SectioningAdapter.TYPE_HEADER || rowsOverlap();
+		boolean headers = baseType == SectioningAdapter.TYPE_HEADER;
+		ArrayList<View> views = headers ? headerViews : contentViews;
 		View bottommostView = null;
 		int bottom = 0;
 
-		for (int i = 0, e = getChildCount(); i < e; i++) {
-			View v = getChildAt(i);
+		for (int i = views.size() - 1; i >= 0; i--) {
+			View v = views.get(i);
 
 			// ignore views which are being deleted
 			if (getViewAdapterPosition(v) == RecyclerView.NO_POSITION) {
@@ -608,8 +1898,8 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			}
 
 			// filter out items which are partially or fully obscured
-			int t = getDecoratedTop(v);
-			int b = getDecoratedBottom(v);
+			int t = getViewStart(v);
+			int b = getViewEnd(v);
 
 			if (fullyVisibleOnly) {
 				if (b < height) {
@@ -625,6 +1915,10 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 				bottom = b;
 				bottommostView = v;
 			}
+
+			if (!checkAll) {
+				break;
+			}
 		}
 
 		return bottommostView != null ? getViewViewHolder(bottommostView) : null;
@@ -640,11 +1934,20 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 		// see: https://blog.stylingandroid.com/scrolling-recyclerview-part-3/
 		View firstVisibleChild = recyclerView.getChildAt(0);
-		int itemHeight = getEstimatedItemHeightForSmoothScroll(recyclerView);
 		int currentPosition = recyclerView.getChildAdapterPosition(firstVisibleChild);
-		int distanceInPixels = Math.abs((currentPosition - position) * itemHeight);
+		int distanceInPixels;
+		if (fixedHeightsByBaseType[SectioningAdapter.TYPE_ITEM] > 0 && adapter != null && currentPosition >= 0) {
+			// item heights are known, so the distance is arithmetic over the section index
+			adapter.countItemsBeforeAdapterPosition(currentPosition, itemCounts);
+			long currentOffset = getEstimatedHeight(itemCounts);
+			adapter.countItemsBeforeAdapterPosition(position, itemCounts);
+			distanceInPixels = (int) Math.min(Integer.MAX_VALUE, Math.abs(getEstimatedHeight(itemCounts) - currentOffset));
+		} else {
+			int itemHeight = getEstimatedItemHeightForSmoothScroll(recyclerView);
+			distanceInPixels = Math.abs((currentPosition - position) * itemHeight);
+		}
 		if (distanceInPixels == 0) {
-			distanceInPixels = (int) Math.abs(firstVisibleChild.getY());
+			distanceInPixels = (int) Math.abs(orientation == RecyclerView.VERTICAL ? firstVisibleChild.getY() : firstVisibleChild.getX());
 		}
 
 		Context context = recyclerView.getContext();
@@ -656,7 +1959,7 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 	private int getEstimatedItemHeightForSmoothScroll(RecyclerView recyclerView) {
 		int height = 0;
 		for (int i = 0, n = recyclerView.getChildCount(); i < n; i++) {
-			height = Math.max(getDecoratedMeasuredHeight(recyclerView.getChildAt(i)), height);
+			height = Math.max(getViewMeasurement(recyclerView.getChildAt(i)), height);
 		}
 		return height;
 	}
@@ -673,36 +1976,48 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 	private void recycleViewsOutOfBounds(RecyclerView.Recycler recycler) {
 
-		int height = getHeight();
-		int numChildren = getChildCount();
-		Set<Integer> remainingSections = new HashSet<>();
-		Set<View> viewsToRecycle = new HashSet<>();
+		int height = getLayoutExtent();
 
 		// we do this in two passes.
-		// first, recycle everything but headers
-		for (int i = 0; i < numChildren; i++) {
-			View view = getChildAt(i);
+		// first, recycle everything but headers, compacting contentViews in place as we go. Only runs of
+		// views at either end are recycled, so the remaining views stay a contiguous range of adapter positions
+		// even if rows overlap
+		int firstKept = 0;
+		int lastKept = contentViews.size() - 1;
+		while (firstKept <= lastKept && isContentViewRecyclable(contentViews.get(firstKept), height)) {
+			firstKept++;
+		}
+		while (lastKept >= firstKept && isContentViewRecyclable(contentViews.get(lastKept), height)) {
+			lastKept--;
+		}
 
-			// skip views which have been recycled but are still in place because of animation
-			if (isViewRecycled(view)) {
-				continue;
-			}
+		int remaining = 0;
+		for (int i = 0, n = contentViews.size(); i < n; i++) {
+			View view = contentViews.get(i);
 
-			if (getViewBaseType(view) != SectioningAdapter.TYPE_HEADER) {
-				if (getDecoratedBottom(view) < 0 || getDecoratedTop(view) > height) {
+			// skip views which have been recycled but are still in place because of animation
+			if (!isViewRecycled(view)) {
+				if (i < firstKept || i > lastKept) {
 					viewsToRecycle.add(view);
-				} else {
-					// this view is visible, therefore the section lives
-					remainingSections.add(getViewSectionIndex(view));
+					continue;
 				}
+
+				// this view is kept, therefore the section lives
+				remainingSections.put(getViewSectionIndex(view), true);
 			}
+
+			contentViews.set(remaining++, view);
+		}
+
+		for (int i = contentViews.size() - 1; i >= remaining; i--) {
+			contentViews.remove(i);
 		}
 
 		// second pass, for each "orphaned" header (a header who's section is completely recycled)
 		// we remove it if it's gone offscreen
 
-		for (int i = 0; i < numChildren; i++) {
-			View view = getChildAt(i);
+		for (int i = headerViews.size() - 1; i >= 0; i--) {
+			View view = headerViews.get(i);
 
 			// skip views which have been recycled but are still in place because of animation
 			if (isViewRecycled(view)) {
@@ -710,87 +2025,96 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			}
 
 			int sectionIndex = getViewSectionIndex(view);
-			if (getViewBaseType(view) == SectioningAdapter.TYPE_HEADER && !remainingSections.contains(sectionIndex)) {
-				float translationY = view.getTranslationY();
-				if ((getDecoratedBottom(view) + translationY) < 0 || (getDecoratedTop(view) + translationY) > height) {
+			if (!remainingSections.get(sectionIndex)) {
+				float translationY = getViewTranslation(view);
+				if ((getViewEnd(view) + translationY) < 0 || (getViewStart(view) + translationY) > height) {
 					viewsToRecycle.add(view);
-					headerViews.remove(view);
+					headerViews.remove(i);
+					headerViewsBySection.remove(sectionIndex);
 					headerPositionsBySection.remove(sectionIndex);
 				}
 			}
 		}
 
-		for (View view : viewsToRecycle) {
-			removeAndRecycleView(view, recycler);
+		for (int i = 0, n = viewsToRecycle.size(); i < n; i++) {
+			removeAndRecycleView(viewsToRecycle.get(i), recycler);
 		}
 
+		remainingSections.clear();
+		viewsToRecycle.clear();
+
 
 		// determine the adapter adapterPosition of first visible item
 		updateFirstAdapterPosition();
 	}
 
-	private View getTopmostChildView() {
-		if (getChildCount() == 0) {
-			return null;
-		}
+	private boolean isContentViewRecyclable(View view, int height) {
+		// views which have been recycled but are still in place because of animation are passed over
+		return isViewRecycled(view) || getViewEnd(view) < 0 || getViewStart(view) > height;
+	}
 
-		// note: We can't use child view order because we muck with moving things to front
-		View topmostView = null;
-		int top = Integer.MAX_VALUE;
+	private View getTopmostChildView() {
+		ensureChildModel();
 
-		for (int i = 0, e = getChildCount(); i < e; i++) {
-			View v = getChildAt(i);
+		for (int i = 0, n = contentViews.size(); i < n; i++) {
+			View v = contentViews.get(i);
 
 			// ignore views which are being deleted
-			if (getViewAdapterPosition(v) == RecyclerView.NO_POSITION) {
-				continue;
-			}
-
-			// ignore headers
-			if (getViewBaseType(v) == SectioningAdapter.TYPE_HEADER) {
-				continue;
-			}
-
-			int t = getDecoratedTop(v);
-			if (t < top) {
-				top = t;
-				topmostView = v;
+			if (getViewAdapterPosition(v) != RecyclerView.NO_POSITION) {
+				return v;
 			}
 		}
 
-		return topmostView;
+		return null;
 	}
 
 	View getBottommostChildView() {
-		if (getChildCount() == 0) {
-			return null;
-		}
-
-		// note: We can't use child view order because we muck with moving things to front
-		View bottommostView = null;
-		int bottom = Integer.MIN_VALUE;
+		ensureChildModel();
 
-		for (int i = 0, e = getChildCount(); i < e; i++) {
-			View v = getChildAt(i);
+		for (int i = contentViews.size() - 1; i >= 0; i--) {
+			View v = contentViews.get(i);
 
 			// ignore views which are being deleted
-			if (getViewAdapterPosition(v) == RecyclerView.NO_POSITION) {
-				continue;
+			if (getViewAdapterPosition(v) != RecyclerView.NO_POSITION) {
+				return v;
 			}
+		}
 
-			// ignore headers
-			if (getViewBaseType(v) == SectioningAdapter.TYPE_HEADER) {
-				continue;
-			}
+		return null;
+	}
 
-			int b = getDecoratedBottom(v);
-			if (b > bottom) {
-				bottom = b;
-				bottommostView = v;
-			}
+	private void addHeaderViewToChildModel(View headerView) {
+		headerViews.add(headerView);
+		headerViewsBySection.put(getViewSectionIndex(headerView), headerView);
+	}
+
+	private void clearChildModel() {
+		headerViews.clear();
+		headerViewsBySection.clear();
+		contentViews.clear();
+	}
+
+	/**
+	 * RecyclerView may add or remove children outside of our layout and scroll passes, e.g., when the
+	 * layout manager is detached. If the child model no longer accounts for every child, rebuild it.
+	 */
+	private void ensureChildModel() {
+		if (headerViews.size() + contentViews.size() == getChildCount()) {
+			return;
 		}
 
-		return bottommostView;
+		clearChildModel();
+		for (int i = 0, n = getChildCount(); i < n; i++) {
+			View v = getChildAt(i);
+			if (getViewBaseType(v) == SectioningAdapter.TYPE_HEADER) {
+				headerViews.add(v);
+				if (!isViewRecycled(v)) {
+					headerViewsBySection.put(getViewSectionIndex(v), v);
+				}
+			} else {
+				contentViews.add(v);
+			}
+		}
 	}
 
 	/**
@@ -804,14 +2128,14 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		// we're empty
 		if (getChildCount() == 0) {
 			firstViewAdapterPosition = 0;
-			firstViewTop = getPaddingTop();
+			firstViewTop = getStartPadding();
 			return firstViewTop;
 		}
 
 		View topmostView = getTopmostChildView();
 		if (topmostView != null) {
 			firstViewAdapterPosition = getViewAdapterPosition(topmostView);
-			firstViewTop = Math.min(topmostView.getTop(), getPaddingTop());
+			firstViewTop = Math.min(getViewUndecoratedStart(topmostView), getStartPadding());
 			return firstViewTop;
 		}
 
@@ -825,63 +2149,92 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 	private void updateHeaderPositions(RecyclerView.Recycler recycler) {
 
-		// first, for each section represented by the current list of items,
-		// ensure that the header for that section is extant
+		// bucket the children by section in a single pass, recording for each section
+		// its header, its ghost header, and its first non-header view
 
-		Set<Integer> visitedSections = new HashSet<>();
-		for (int i = 0, n = getChildCount(); i < n; i++) {
+		int childCount = getChildCount();
+		if (childSections.length < childCount) {
+			childSections = new int[Math.max(childCount, childSections.length * 2)];
+		}
+
+		int firstSection = Integer.MAX_VALUE;
+		int lastSection = -1;
+		for (int i = 0; i < childCount; i++) {
 			View view = getChildAt(i);
-			int sectionIndex = getViewSectionIndex(view);
-			if (visitedSections.add(sectionIndex)) {
-				if (adapter.doesSectionHaveHeader(sectionIndex)) {
-					createSectionHeaderIfNeeded(recycler, sectionIndex);
-				}
+			int sectionIndex = isViewRecycled(view) ? -1 : getViewSectionIndex(view);
+			childSections[i] = sectionIndex;
+			if (sectionIndex >= 0) {
+				firstSection = Math.min(firstSection, sectionIndex);
+				lastSection = Math.max(lastSection, sectionIndex);
 			}
 		}
 
-		// header is always positioned at top
-		int left = getPaddingLeft();
-		int right = getWidth() - getPaddingRight();
-
-		for (View headerView : headerViews) {
-			int sectionIndex = getViewSectionIndex(headerView);
+		int numberOfBuckets = lastSection >= 0 ? lastSection - firstSection + 1 : 0;
+		if (sectionHeaderViews.length < numberOfBuckets) {
+			int capacity = Math.max(numberOfBuckets, sectionHeaderViews.length * 2);
+			sectionHeaderViews = new View[capacity];
+			sectionGhostHeaderViews = new View[capacity];
+			sectionFirstViews = new View[capacity];
+		}
 
-			// find first and last non-header views in this section
-			View ghostHeader = null;
-			View firstViewInNextSection = null;
-			for (int i = 0, n = getChildCount(); i < n; i++) {
-				View view = getChildAt(i);
+		for (int i = 0; i < childCount; i++) {
+			int sectionIndex = childSections[i];
+			if (sectionIndex < 0) {
+				continue;
+			}
 
-				// the view has been recycled
-				if (isViewRecycled(view)) {
-					continue;
+			View view = getChildAt(i);
+			int bucket = sectionIndex - firstSection;
+			int type = getViewBaseType(view);
+			if (type == SectioningAdapter.TYPE_HEADER) {
+				sectionHeaderViews[bucket] = view;
+			} else {
+				if (type == SectioningAdapter.TYPE_GHOST_HEADER) {
+					sectionGhostHeaderViews[bucket] = view;
 				}
-
-				int type = getViewBaseType(view);
-				if (type == SectioningAdapter.TYPE_HEADER) {
-					continue;
+				if (sectionFirstViews[bucket] == null) {
+					sectionFirstViews[bucket] = view;
 				}
+			}
+		}
 
-				int viewSectionIndex = getViewSectionIndex(view);
-				if (viewSectionIndex == sectionIndex) {
-					if (type == SectioningAdapter.TYPE_GHOST_HEADER) {
-						ghostHeader = view;
-					}
-				} else if (viewSectionIndex == sectionIndex + 1) {
-					if (firstViewInNextSection == null) {
-						firstViewInNextSection = view;
-					}
+		// for each section represented by the current list of items,
+		// ensure that the header for that section is extant
+
+		for (int bucket = 0; bucket < numberOfBuckets; bucket++) {
+			if (sectionHeaderViews[bucket] == null && sectionFirstViews[bucket] != null) {
+				int sectionIndex = firstSection + bucket;
+				if (adapter.doesSectionHaveHeader(sectionIndex)) {
+					createSectionHeader(recycler, sectionIndex);
 				}
 			}
+		}
+
+		// header is always positioned at top
+
+		for (int i = 0, n = headerViews.size(); i < n; i++) {
+			View headerView = headerViews.get(i);
+
+			// a removed header stays where it was while it animates out
+			if (isViewRecycled(headerView)) {
+				continue;
+			}
 
-			int height = getDecoratedMeasuredHeight(headerView);
-			int top = getPaddingTop();
+			int sectionIndex = getViewSectionIndex(headerView);
+
+			// look up the ghost header of this section, and the first view in the next
+			int bucket = sectionIndex - firstSection;
+			View ghostHeader = bucket >= 0 && bucket < numberOfBuckets ? sectionGhostHeaderViews[bucket] : null;
+			View firstViewInNextSection = bucket + 1 >= 0 && bucket + 1 < numberOfBuckets ? sectionFirstViews[bucket + 1] : null;
+
+			int height = getViewMeasurement(headerView);
+			int top = getStartPadding();
 
 			// initial position mark
 			HeaderPosition headerPosition = HeaderPosition.STICKY;
 
 			if (ghostHeader != null) {
-				int ghostHeaderTop = getDecoratedTop(ghostHeader);
+				int ghostHeaderTop = getViewStart(ghostHeader);
 				if (ghostHeaderTop >= top) {
 					top = ghostHeaderTop;
 					headerPosition = HeaderPosition.NATURAL;
@@ -889,7 +2242,7 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 			}
 
 			if (firstViewInNextSection != null) {
-				int nextViewTop = getDecoratedTop(firstViewInNextSection);
+				int nextViewTop = getViewStart(firstViewInNextSection);
 				if (nextViewTop - height < top) {
 					top = nextViewTop - height;
 					headerPosition = HeaderPosition.TRAILING;
@@ -898,16 +2251,21 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 			// now bring header to front of stack for overlap, and position it
 			headerView.bringToFront();
-			layoutDecorated(headerView, left, top, right, top + height);
+			layoutChild(headerView, top, top + height);
 
 			// notify adapter of positioning for this header
 			recordHeaderPositionAndNotify(sectionIndex, headerView, headerPosition);
 		}
+
+		// don't hold on to views past this pass
+		Arrays.fill(sectionHeaderViews, 0, numberOfBuckets, null);
+		Arrays.fill(sectionGhostHeaderViews, 0, numberOfBuckets, null);
+		Arrays.fill(sectionFirstViews, 0, numberOfBuckets, null);
 	}
 
 	private void recordHeaderPositionAndNotify(int sectionIndex, View headerView, HeaderPosition newHeaderPosition) {
-		if (headerPositionsBySection.containsKey(sectionIndex)) {
-			HeaderPosition currentHeaderPosition = headerPositionsBySection.get(sectionIndex);
+		HeaderPosition currentHeaderPosition = headerPositionsBySection.get(sectionIndex);
+		if (currentHeaderPosition != null) {
 			if (currentHeaderPosition != newHeaderPosition) {
 				headerPositionsBySection.put(sectionIndex, newHeaderPosition);
 				if (headerPositionChangedCallback != null) {
@@ -923,13 +2281,98 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		}
 	}
 
+	// accessors along the layout axis; "start" and "end" are top and bottom in vertical orientation,
+	// left and right in horizontal
+
+	int getViewStart(View view) {
+		return orientation == RecyclerView.VERTICAL ? getDecoratedTop(view) : getDecoratedLeft(view);
+	}
+
+	private int getViewEnd(View view) {
+		return orientation == RecyclerView.VERTICAL ? getDecoratedBottom(view) : getDecoratedRight(view);
+	}
+
+	int getViewMeasurement(View view) {
+		return orientation == RecyclerView.VERTICAL ? getDecoratedMeasuredHeight(view) : getDecoratedMeasuredWidth(view);
+	}
+
+	private int getViewUndecoratedStart(View view) {
+		return orientation == RecyclerView.VERTICAL ? view.getTop() : view.getLeft();
+	}
+
+	private int getViewUndecoratedEnd(View view) {
+		return orientation == RecyclerView.VERTICAL ? view.getBottom() : view.getRight();
+	}
+
+	private float getViewTranslation(View view) {
+		return orientation == RecyclerView.VERTICAL ? view.getTranslationY() : view.getTranslationX();
+	}
+
+	private int getStartPadding() {
+		return orientation == RecyclerView.VERTICAL ? getPaddingTop() : getPaddingLeft();
+	}
+
+	private int getEndPadding() {
+		return orientation == RecyclerView.VERTICAL ? getPaddingBottom() : getPaddingRight();
+	}
+
+	private int getLayoutExtent() {
+		return orientation == RecyclerView.VERTICAL ? getHeight() : getWidth();
+	}
+
+	/**
+	 * Lay out a child between start and end along the layout axis, filling the padded cross axis
+	 */
+	private void layoutChild(View view, int start, int end) {
+		if (orientation == RecyclerView.VERTICAL) {
+			layoutDecorated(view, getPaddingLeft(), start, getWidth() - getPaddingRight(), end);
+		} else {
+			layoutDecorated(view, start, getPaddingTop(), end, getHeight() - getPaddingBottom());
+		}
+	}
+
+	/**
+	 * Lay out a child between start and end along the layout axis, and crossStart and crossEnd across it
+	 */
+	void layoutChild(View view, int start, int end, int crossStart, int crossEnd) {
+		if (orientation == RecyclerView.VERTICAL) {
+			layoutDecorated(view, crossStart, start, crossEnd, end);
+		} else {
+			layoutDecorated(view, start, crossStart, end, crossEnd);
+		}
+	}
+
+	/**
+	 * @return the padding before the start of the cross axis, i.e., the left padding in vertical orientation
+	 */
+	int getCrossAxisStartPadding() {
+		return orientation == RecyclerView.VERTICAL ? getPaddingLeft() : getPaddingTop();
+	}
+
+	/**
+	 * @return the size of the list across the layout axis, less padding
+	 */
+	int getCrossAxisExtent() {
+		return orientation == RecyclerView.VERTICAL
+				? getWidth() - getPaddingLeft() - getPaddingRight()
+				: getHeight() - getPaddingTop() - getPaddingBottom();
+	}
+
+	private void offsetChildren(int delta) {
+		if (orientation == RecyclerView.VERTICAL) {
+			offsetChildrenVertical(delta);
+		} else {
+			offsetChildrenHorizontal(delta);
+		}
+	}
+
 	private boolean isViewRecycled(View view) {
 		return getViewAdapterPosition(view) == RecyclerView.NO_POSITION;
 	}
 
 	private int getViewBaseType(View view) {
-		int adapterPosition = getViewAdapterPosition(view);
-		return adapter.getItemViewBaseType(adapterPosition);
+		// the type the view holder was bound with; unlike the adapter position, valid even once the item is removed
+		return SectioningAdapter.unmaskBaseViewType(getViewViewHolder(view).getItemViewType());
 	}
 
 	private int getViewSectionIndex(View view) {
@@ -962,7 +2405,8 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 		@Override
 		public PointF computeScrollVectorForPosition(int targetPosition) {
-			return new PointF(0, StickyHeaderLayoutManager.this.computeScrollVectorForPosition(targetPosition));
+			int direction = StickyHeaderLayoutManager.this.computeScrollVectorForPosition(targetPosition);
+			return orientation == RecyclerView.VERTICAL ? new PointF(0, direction) : new PointF(direction, 0);
 		}
 
 		@Override
@@ -976,6 +2420,7 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 		int firstViewAdapterPosition = RecyclerView.NO_POSITION;
 		int firstViewTop = 0;
+		boolean pinnedToEnd = false;
 
 		SavedState() {
 		}
@@ -983,11 +2428,13 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		SavedState(Parcel in) {
 			firstViewAdapterPosition = in.readInt();
 			firstViewTop = in.readInt();
+			pinnedToEnd = in.readInt() != 0;
 		}
 
 		public SavedState(SavedState other) {
 			firstViewAdapterPosition = other.firstViewAdapterPosition;
 			firstViewTop = other.firstViewTop;
+			pinnedToEnd = other.pinnedToEnd;
 		}
 
 		boolean isValid() {
@@ -1000,7 +2447,7 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 
 		@Override
 		public String toString() {
-			return "<" + this.getClass().getCanonicalName() + " firstViewAdapterPosition: " + firstViewAdapterPosition + " firstViewTop: " + firstViewTop + ">";
+			return "<" + this.getClass().getCanonicalName() + " firstViewAdapterPosition: " + firstViewAdapterPosition + " firstViewTop: " + firstViewTop + " pinnedToEnd: " + pinnedToEnd + ">";
 		}
 
 		@Override
@@ -1012,6 +2459,7 @@ public class StickyHeaderLayoutManager extends RecyclerView.LayoutManager {
 		public void writeToParcel(Parcel dest, int flags) {
 			dest.writeInt(firstViewAdapterPosition);
 			dest.writeInt(firstViewTop);
+			dest.writeInt(pinnedToEnd ? 1 : 0);
 		}
 
 		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
@@ -0,0 +1,380 @@
+package org.zakariya.stickyheaders;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * StickyHeaderStaggeredGridLayoutManager
+ * A StickyHeaderLayoutManager which lays out the items of each section in a staggered grid of spanCount
+ * columns (or rows, in horizontal orientation), each item going into whichever column is shortest.
+ * Headers and footers span the full width of the list, and headers stick just as they do in
+ * StickyHeaderLayoutManager. Each section starts with its columns level.
+ * <p/>
+ * Each item's column and offset are cached per section as it's laid out, so scrolling back over a
+ * section reuses its assignments. Changes to a section's items only discard that section's assignments.
+ * Laying out an item whose section has no assignments for the items before it, e.g., after
+ * scrollToPosition into the middle of a section, assigns those items first. Items which have never been
+ * laid out aren't bound and measured for this, which would cost O(n) binds for a jump deep into a large
+ * section; they're assigned the average height of the items laid out so far. When such an item is later
+ * laid out at a different height, it and the items after it in its section are reassigned, so the columns
+ * below it may reflow. Measured heights are kept, so reassigning a section doesn't measure its items again;
+ * updating an item discards only its own.
+ * StickyHeaderStaggeredGridLayoutManager MUST be used in conjunction with SectioningAdapter.
+ *
+ * @see SectioningAdapter
+ * @see StickyHeaderLayoutManager
+ */
+@SuppressWarnings("unused")
+public class StickyHeaderStaggeredGridLayoutManager extends StickyHeaderLayoutManager {
+
+	// per section item assignments, stored as primitive arrays
+	private static class SectionLanes {
+		int numberOfItems;
+
+		// number of items, from the first, which have been assigned
+		int count;
+
+		// the end of each column after the assigned items, relative to the top of the section's items
+		int[] laneEnds;
+
+		// per item, its column, its top relative to the top of the section's items, its height,
+		// and the distance from its top to the next item's top
+		int[] lanes;
+		int[] tops;
+		int[] heights;
+		int[] advances;
+
+		// per item, its measured height or -1 if it has only been assigned an estimate; unlike the assignments,
+		// kept when the section is truncated, so reassigning needn't measure the items again
+		int[] measuredHeights;
+
+		SectionLanes(int numberOfItems, int spanCount) {
+			this.numberOfItems = numberOfItems;
+			laneEnds = new int[spanCount];
+			lanes = new int[numberOfItems];
+			tops = new int[numberOfItems];
+			heights = new int[numberOfItems];
+			advances = new int[numberOfItems];
+			measuredHeights = new int[numberOfItems];
+			Arrays.fill(measuredHeights, -1);
+		}
+	}
+
+	private int spanCount;
+	private SparseArray<SectionLanes> sectionLanes = new SparseArray<>();
+
+	// the number of sections when the assignments were last invalidated; if it changes, section indices have shifted
+	private int numberOfSections = -1;
+
+	// the column width the sections' items were measured at
+	private int laneWidth = -1;
+
+	// the heights of the items laid out at laneWidth, to estimate the heights of items which haven't been
+	private long laidOutHeightSum;
+	private int laidOutCount;
+
+	/**
+	 * @param spanCount number of columns
+	 */
+	public StickyHeaderStaggeredGridLayoutManager(int spanCount) {
+		setSpanCount(spanCount);
+	}
+
+	/**
+	 * @param spanCount   number of columns, or of rows in horizontal orientation
+	 * @param orientation RecyclerView.VERTICAL or RecyclerView.HORIZONTAL
+	 */
+	public StickyHeaderStaggeredGridLayoutManager(int spanCount, int orientation) {
+		super(orientation);
+		setSpanCount(spanCount);
+	}
+
+	public int getSpanCount() {
+		return spanCount;
+	}
+
+	/**
+	 * @param spanCount number of columns, or of rows in horizontal orientation
+	 */
+	public void setSpanCount(int spanCount) {
+		if (spanCount < 1) {
+			throw new IllegalArgumentException("spanCount must be at least 1, got: " + spanCount);
+		}
+
+		if (spanCount != this.spanCount) {
+			this.spanCount = spanCount;
+			sectionLanes.clear();
+			requestLayout();
+		}
+	}
+
+	/**
+	 * Discard the cached column assignments of every section, e.g., when item sizes change without the adapter being notified
+	 */
+	public void invalidateColumnAssignments() {
+		sectionLanes.clear();
+		requestLayout();
+	}
+
+	@Override
+	public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+		super.onAdapterChanged(oldAdapter, newAdapter);
+		sectionLanes.clear();
+		numberOfSections = -1;
+	}
+
+	@Override
+	public void onItemsChanged(RecyclerView recyclerView) {
+		super.onItemsChanged(recyclerView);
+		sectionLanes.clear();
+	}
+
+	@Override
+	public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+		super.onItemsAdded(recyclerView, positionStart, itemCount);
+		invalidateSectionLanes(positionStart, itemCount);
+	}
+
+	@Override
+	public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+		super.onItemsRemoved(recyclerView, positionStart, itemCount);
+
+		// the removed positions are gone, but every section they overlapped now lies between the one before
+		// positionStart and the one at it: the first and last may have lost items, any between were emptied
+		int first = Math.max(0, positionStart - 1);
+		invalidateSectionLanes(first, positionStart - first + 1);
+	}
+
+	@Override
+	public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+		// not called for selection changes, which keep the items' heights and so their lanes
+		super.onItemsUpdated(recyclerView, positionStart, itemCount);
+		invalidateItemHeights(positionStart, itemCount);
+	}
+
+	@Override
+	public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+		super.onItemsMoved(recyclerView, from, to, itemCount);
+		invalidateSectionLanes(from, itemCount);
+		invalidateSectionLanes(to, itemCount);
+	}
+
+	@Override
+	int getItemAdvanceForFixedHeight(int fixedHeight) {
+		// an estimate: it assumes full rows, so the partly filled last row of each section and span sizes are ignored
+		return fixedHeight / spanCount;
+	}
+
+	@Override
+	void measureRowItem(View view, int adapterPosition) {
+		int crossAxisUsed = getCrossAxisExtent() - getLaneWidth();
+		if (getOrientation() == RecyclerView.VERTICAL) {
+			measureVendedChild(view, crossAxisUsed, 0);
+		} else {
+			measureVendedChild(view, 0, crossAxisUsed);
+		}
+	}
+
+	@Override
+	void layoutRowItem(View view, int adapterPosition, int start, int end) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		int sectionIndex = adapter.getSectionForAdapterPosition(adapterPosition);
+		int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, adapterPosition);
+		SectionLanes section = getSectionLanes(sectionIndex);
+
+		// items are assigned before they're laid out, but disappearing items may no longer be
+		int lane = itemIndex < section.count ? section.lanes[itemIndex] : 0;
+		int crossStart = getCrossAxisStartPadding() + lane * getLaneWidth();
+		layoutChild(view, start, end, crossStart, crossStart + getLaneWidth());
+	}
+
+	@Override
+	int getRowAdvance(RecyclerView.Recycler recycler, int firstAdapterPosition, int endAdapterPosition, int rowHeight) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		int sectionIndex = adapter.getSectionForAdapterPosition(firstAdapterPosition);
+		int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, firstAdapterPosition);
+		SectionLanes section = getSectionLanes(sectionIndex);
+
+		if (itemIndex < section.count) {
+			if (section.heights[itemIndex] == rowHeight) {
+				// an estimate may have been right
+				section.measuredHeights[itemIndex] = rowHeight;
+				return section.advances[itemIndex];
+			}
+
+			// the item's size changed, or it was assigned an estimate, so it and everything after it need reassigning
+			truncate(section, itemIndex);
+		}
+
+		// assign the items before this one, estimating the heights of those which haven't been measured
+		int estimatedHeight = laidOutCount > 0 ? (int) (laidOutHeightSum / laidOutCount) : rowHeight;
+		while (section.count < itemIndex) {
+			int height = section.measuredHeights[section.count];
+			assign(section, height >= 0 ? height : estimatedHeight, height >= 0);
+		}
+
+		assign(section, rowHeight, true);
+		laidOutHeightSum += rowHeight;
+		laidOutCount++;
+		return section.advances[itemIndex];
+	}
+
+	@Override
+	int getItemRowEnd(View view) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		int adapterPosition = getViewAdapterPosition(view);
+		if (adapterPosition == RecyclerView.NO_POSITION) {
+			return super.getItemRowEnd(view);
+		}
+
+		int sectionIndex = adapter.getSectionForAdapterPosition(adapterPosition);
+		int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, adapterPosition);
+		SectionLanes section = getSectionLanes(sectionIndex);
+		if (itemIndex >= section.count) {
+			return super.getItemRowEnd(view);
+		}
+
+		return getViewStart(view) + section.advances[itemIndex];
+	}
+
+	@Override
+	boolean rowsOverlap() {
+		// a short item laid out after a tall one in another column ends above it
+		return true;
+	}
+
+	private int getLaneWidth() {
+		return Math.max(0, getCrossAxisExtent()) / spanCount;
+	}
+
+	private SectionLanes getSectionLanes(int sectionIndex) {
+		// items measured at another column width must be measured again
+		if (getLaneWidth() != laneWidth) {
+			sectionLanes.clear();
+			laneWidth = getLaneWidth();
+			laidOutHeightSum = 0;
+			laidOutCount = 0;
+		}
+
+		int numberOfItems = getSectioningAdapter().getNumberOfItemsInSection(sectionIndex);
+		SectionLanes section = sectionLanes.get(sectionIndex);
+
+		// a section whose item count changed without us being notified can't be trusted
+		if (section == null || section.numberOfItems != numberOfItems) {
+			section = new SectionLanes(numberOfItems, spanCount);
+			sectionLanes.put(sectionIndex, section);
+		}
+
+		return section;
+	}
+
+	/**
+	 * Assign the next item of a section to the shortest column
+	 *
+	 * @param height   the item's height
+	 * @param measured true if height is the item's measured height, false if it's an estimate
+	 */
+	private void assign(SectionLanes section, int height, boolean measured) {
+		int[] laneEnds = section.laneEnds;
+		int lane = 0;
+		for (int i = 1; i < spanCount; i++) {
+			if (laneEnds[i] < laneEnds[lane]) {
+				lane = i;
+			}
+		}
+
+		int i = section.count;
+		int top = laneEnds[lane];
+		laneEnds[lane] = top + height;
+
+		// the next item goes at the top of the shortest column; after the last item, the section continues below the longest
+		int next = laneEnds[0];
+		for (int l = 1; l < spanCount; l++) {
+			next = i == section.numberOfItems - 1 ? Math.max(next, laneEnds[l]) : Math.min(next, laneEnds[l]);
+		}
+
+		section.lanes[i] = lane;
+		section.tops[i] = top;
+		section.heights[i] = height;
+		section.measuredHeights[i] = measured ? height : -1;
+		section.advances[i] = next - top;
+		section.count++;
+	}
+
+	/**
+	 * Discard the assignments of a section's items from itemIndex on
+	 */
+	private void truncate(SectionLanes section, int itemIndex) {
+		section.count = itemIndex;
+		Arrays.fill(section.laneEnds, 0);
+		for (int i = 0; i < itemIndex; i++) {
+			section.laneEnds[section.lanes[i]] = section.tops[i] + section.heights[i];
+		}
+	}
+
+	/**
+	 * Discard the measured heights of the items in a range of adapter positions, and the assignments of each
+	 * section from the first of them on. The section's other items keep their measured heights.
+	 */
+	private void invalidateItemHeights(int positionStart, int itemCount) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		if (adapter == null) {
+			return;
+		}
+
+		if (adapter.getNumberOfSections() != numberOfSections) {
+			invalidateSectionLanes(positionStart, itemCount);
+			return;
+		}
+
+		for (int p = Math.max(0, positionStart), end = Math.min(positionStart + itemCount, adapter.getItemCount()); p < end; p++) {
+			if (adapter.getItemViewBaseType(p) != SectioningAdapter.TYPE_ITEM) {
+				continue;
+			}
+
+			int sectionIndex = adapter.getSectionForAdapterPosition(p);
+			SectionLanes section = sectionLanes.get(sectionIndex);
+			int itemIndex = adapter.getPositionOfItemInSection(sectionIndex, p);
+			if (section == null || itemIndex >= section.numberOfItems) {
+				continue;
+			}
+
+			section.measuredHeights[itemIndex] = -1;
+			if (itemIndex < section.count) {
+				truncate(section, itemIndex);
+			}
+		}
+	}
+
+	/**
+	 * Discard the assignments of the sections containing a range of adapter positions
+	 */
+	private void invalidateSectionLanes(int positionStart, int itemCount) {
+		SectioningAdapter adapter = getSectioningAdapter();
+		if (adapter == null) {
+			return;
+		}
+
+		int adapterItemCount = adapter.getItemCount();
+		if (adapterItemCount == 0 || adapter.getNumberOfSections() != numberOfSections) {
+			// sections were added or removed, so cached section indices no longer line up
+			sectionLanes.clear();
+			numberOfSections = adapter.getNumberOfSections();
+			return;
+		}
+
+		int first = Math.max(0, Math.min(positionStart, adapterItemCount - 1));
+		int last = positionStart + itemCount - 1;
+		int firstSection = adapter.getSectionForAdapterPosition(first);
+
+		// a range reaching past the end includes any sections emptied there
+		int lastSection = last >= adapterItemCount ? numberOfSections - 1 : adapter.getSectionForAdapterPosition(Math.max(first, last));
+		for (int s = firstSection; s <= lastSection; s++) {
+			sectionLanes.remove(s);
+		}
+	}
+}
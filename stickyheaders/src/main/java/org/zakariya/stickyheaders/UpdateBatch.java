@@ -0,0 +1,154 @@
+package org.zakariya.stickyheaders;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * UpdateBatch
+ * Queues the RecyclerView item range notifications generated by SectioningAdapter between
+ * beginUpdates() and endUpdates(), and dispatches them in order when the batch is committed.
+ * Each update is merged with the one before it where the two describe a single contiguous range,
+ * e.g., a run of item insertions at successive positions is dispatched as one notifyItemRangeInserted.
+ *
+ * @see SectioningAdapter#beginUpdates()
+ */
+class UpdateBatch {
+
+	static final int INSERT = 0;
+	static final int REMOVE = 1;
+	static final int CHANGE = 2;
+	static final int MOVE = 3;
+	static final int SELECTION_CHANGE = 4; // a CHANGE carrying the SectioningAdapter.SELECTION_CHANGED payload
+
+	// (type, position, count) triples; for MOVE, (type, fromPosition, toPosition)
+	private int[] updates = new int[3 * 16];
+	private int numberOfUpdates;
+	private boolean dataSetChanged;
+
+	boolean isEmpty() {
+		return numberOfUpdates == 0 && !dataSetChanged;
+	}
+
+	/**
+	 * Record that the entire data set changed. This supersedes every other update in the batch.
+	 */
+	void addDataSetChanged() {
+		dataSetChanged = true;
+		numberOfUpdates = 0;
+	}
+
+	/**
+	 * Record an item range update, merging it with the previous update if possible
+	 *
+	 * @param type     one of INSERT, REMOVE, CHANGE, SELECTION_CHANGE or MOVE
+	 * @param position the adapter position of the first item in the range
+	 * @param count    the number of items in the range, or for MOVE the position the item moved to
+	 */
+	void add(int type, int position, int count) {
+		if (dataSetChanged || (type != MOVE && count <= 0)) {
+			return;
+		}
+
+		if (numberOfUpdates > 0 && type != MOVE) {
+			int last = (numberOfUpdates - 1) * 3;
+			if (updates[last] == type && merge(last, type, position, count)) {
+				return;
+			}
+		}
+
+		int i = numberOfUpdates * 3;
+		if (i + 3 > updates.length) {
+			updates = Arrays.copyOf(updates, updates.length * 2);
+		}
+
+		updates[i] = type;
+		updates[i + 1] = position;
+		updates[i + 2] = count;
+		numberOfUpdates++;
+	}
+
+	/**
+	 * Dispatch the queued updates to the adapter's observers, and reset the batch
+	 *
+	 * @param adapter the adapter to notify
+	 */
+	void dispatch(RecyclerView.Adapter adapter) {
+		if (dataSetChanged) {
+			adapter.notifyDataSetChanged();
+		} else {
+			for (int u = 0; u < numberOfUpdates; u++) {
+				int i = u * 3;
+				int position = updates[i + 1];
+				int count = updates[i + 2];
+				switch (updates[i]) {
+					case INSERT:
+						adapter.notifyItemRangeInserted(position, count);
+						break;
+					case REMOVE:
+						adapter.notifyItemRangeRemoved(position, count);
+						break;
+					case CHANGE:
+						adapter.notifyItemRangeChanged(position, count);
+						break;
+					case SELECTION_CHANGE:
+						adapter.notifyItemRangeChanged(position, count, SectioningAdapter.SELECTION_CHANGED);
+						break;
+					case MOVE:
+						adapter.notifyItemMoved(position, count);
+						break;
+				}
+			}
+		}
+
+		clear();
+	}
+
+	void clear() {
+		numberOfUpdates = 0;
+		dataSetChanged = false;
+	}
+
+	private boolean merge(int last, int type, int position, int count) {
+		int lastPosition = updates[last + 1];
+		int lastCount = updates[last + 2];
+
+		switch (type) {
+			case INSERT:
+				// inserting anywhere within or at either end of the block just inserted extends it
+				if (position >= lastPosition && position <= lastPosition + lastCount) {
+					updates[last + 2] = lastCount + count;
+					return true;
+				}
+				break;
+
+			case REMOVE:
+				// removing the items which slid into the hole left by the last removal
+				if (position == lastPosition) {
+					updates[last + 2] = lastCount + count;
+					return true;
+				}
+				// removing the items immediately before the last removal
+				if (position + count == lastPosition) {
+					updates[last + 1] = position;
+					updates[last + 2] = lastCount + count;
+					return true;
+				}
+				break;
+
+			case CHANGE:
+			case SELECTION_CHANGE:
+				// overlapping or adjacent change ranges become their union
+				if (position <= lastPosition + lastCount && position + count >= lastPosition) {
+					int start = Math.min(position, lastPosition);
+					int end = Math.max(position + count, lastPosition + lastCount);
+					updates[last + 1] = start;
+					updates[last + 2] = end - start;
+					return true;
+				}
+				break;
+		}
+
+		return false;
+	}
+}
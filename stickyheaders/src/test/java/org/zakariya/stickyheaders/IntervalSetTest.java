@@ -0,0 +1,254 @@
+package org.zakariya.stickyheaders;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntervalSetTest {
+
+	// enough runs that a quadratic pass over them would far exceed the timeout
+	private static final int NUMBER_OF_RUNS = 200000;
+
+	@Test
+	public void add_mergesOverlappingAndAdjacentRuns() {
+		IntervalSet set = new IntervalSet();
+		assertEquals(3, set.add(0, 3));
+		assertEquals(2, set.add(5, 7));
+		assertRuns(set, 0, 3, 5, 7);
+
+		// adjacent on both sides
+		assertEquals(2, set.add(3, 5));
+		assertRuns(set, 0, 7);
+
+		// overlapping
+		assertEquals(3, set.add(4, 10));
+		assertRuns(set, 0, 10);
+		assertEquals(10, set.size());
+
+		assertEquals(0, set.add(2, 8));
+		assertEquals(10, set.size());
+	}
+
+	@Test
+	public void add_spanningSeveralRunsMergesThemAll() {
+		IntervalSet set = new IntervalSet();
+		set.add(0, 1);
+		set.add(3, 4);
+		set.add(6, 7);
+		set.add(9, 10);
+		assertEquals(4, set.getRunCount());
+
+		assertEquals(6, set.add(1, 9));
+		assertRuns(set, 0, 10);
+	}
+
+	@Test
+	public void remove_splitsRun() {
+		IntervalSet set = new IntervalSet();
+		set.add(0, 10);
+
+		assertEquals(3, set.remove(4, 7));
+		assertRuns(set, 0, 4, 7, 10);
+		assertEquals(7, set.size());
+
+		assertFalse(set.contains(4));
+		assertFalse(set.contains(6));
+		assertTrue(set.contains(3));
+		assertTrue(set.contains(7));
+	}
+
+	@Test
+	public void remove_acrossRuns() {
+		IntervalSet set = new IntervalSet();
+		set.add(0, 3);
+		set.add(5, 8);
+		set.add(10, 13);
+
+		assertEquals(5, set.remove(2, 11));
+		assertRuns(set, 0, 2, 11, 13);
+		assertEquals(0, set.remove(3, 10));
+	}
+
+	@Test
+	public void shift_insertionSplitsRunSpanningPosition() {
+		IntervalSet set = new IntervalSet();
+		set.add(2, 6);
+
+		set.shift(4, 3);
+		assertRuns(set, 2, 4, 7, 9);
+		assertEquals(4, set.size());
+	}
+
+	@Test
+	public void shift_insertionAtRunStartMovesWholeRun() {
+		IntervalSet set = new IntervalSet();
+		set.add(2, 6);
+
+		set.shift(2, 3);
+		assertRuns(set, 5, 9);
+	}
+
+	@Test
+	public void shift_removalMergesRunsEitherSide() {
+		IntervalSet set = new IntervalSet();
+		set.add(0, 4);
+		set.add(6, 10);
+
+		// removing the gap brings the runs together
+		set.shift(4, -2);
+		assertRuns(set, 0, 8);
+		assertEquals(8, set.size());
+	}
+
+	@Test
+	public void shift_removalAcrossRunBoundaries() {
+		IntervalSet set = new IntervalSet();
+		set.add(0, 4);
+		set.add(6, 10);
+		set.add(12, 14);
+
+		// removes [3, 7), the tail of the first run and the head of the second
+		set.shift(3, -4);
+		assertRuns(set, 0, 6, 8, 10);
+		assertEquals(8, set.size());
+	}
+
+	@Test
+	public void randomOperations_matchReference() {
+		Random random = new Random(1);
+		for (int iteration = 0; iteration < 200; iteration++) {
+			IntervalSet set = new IntervalSet();
+			boolean[] reference = new boolean[0];
+
+			for (int op = 0; op < 100; op++) {
+				int length = reference.length;
+				int from = random.nextInt(length + 1);
+				int count = random.nextInt(5);
+				switch (random.nextInt(4)) {
+					case 0:
+						reference = grow(reference, from + count);
+						set.add(from, from + count);
+						for (int i = from; i < from + count; i++) {
+							reference[i] = true;
+						}
+						break;
+					case 1:
+						set.remove(from, from + count);
+						for (int i = from; i < Math.min(from + count, length); i++) {
+							reference[i] = false;
+						}
+						break;
+					case 2: {
+						boolean[] shifted = new boolean[length + count];
+						System.arraycopy(reference, 0, shifted, 0, from);
+						System.arraycopy(reference, from, shifted, from + count, length - from);
+						reference = shifted;
+						set.shift(from, count);
+						break;
+					}
+					case 3: {
+						count = Math.min(count, length - from);
+						boolean[] shifted = new boolean[length - count];
+						System.arraycopy(reference, 0, shifted, 0, from);
+						System.arraycopy(reference, from + count, shifted, from, length - from - count);
+						reference = shifted;
+						set.shift(from, -count);
+						break;
+					}
+				}
+
+				assertMatches(reference, set);
+			}
+		}
+	}
+
+	private static boolean[] grow(boolean[] values, int length) {
+		if (values.length >= length) {
+			return values;
+		}
+		boolean[] grown = new boolean[length];
+		System.arraycopy(values, 0, grown, 0, values.length);
+		return grown;
+	}
+
+	private static void assertMatches(boolean[] reference, IntervalSet set) {
+		int size = 0;
+		for (int i = 0; i < reference.length; i++) {
+			assertEquals("value " + i, reference[i], set.contains(i));
+			if (reference[i]) {
+				size++;
+			}
+		}
+		assertEquals(size, set.size());
+
+		// runs are sorted, disjoint and non-adjacent, and within the reference
+		for (int run = 0; run < set.getRunCount(); run++) {
+			assertTrue(set.getRunStart(run) < set.getRunEnd(run));
+			assertTrue(set.getRunEnd(run) <= reference.length);
+			if (run > 0) {
+				assertTrue(set.getRunEnd(run - 1) < set.getRunStart(run));
+			}
+		}
+	}
+
+	@Test(timeout = 2000)
+	public void removingRunsFrontToBack_isLinear() {
+		IntervalSet set = alternatingRuns(NUMBER_OF_RUNS);
+
+		// as deleting the selected items front to back does: each removal is where the last one left off
+		for (int run = 0; run < NUMBER_OF_RUNS; run++) {
+			set.shift(run, -1);
+		}
+
+		assertTrue(set.isEmpty());
+		assertEquals(0, set.getRunCount());
+	}
+
+	@Test(timeout = 2000)
+	public void removingRunsBackToFront_isLinear() {
+		IntervalSet set = alternatingRuns(NUMBER_OF_RUNS);
+
+		for (int run = NUMBER_OF_RUNS - 1; run >= 0; run--) {
+			set.shift(run * 2, -1);
+		}
+
+		assertTrue(set.isEmpty());
+	}
+
+	@Test(timeout = 2000)
+	public void insertingFrontToBack_isLinear() {
+		IntervalSet set = alternatingRuns(NUMBER_OF_RUNS);
+
+		// open a gap after each run, splitting nothing
+		for (int run = 0; run < NUMBER_OF_RUNS; run++) {
+			set.shift(run * 3 + 1, 1);
+		}
+
+		assertEquals(NUMBER_OF_RUNS, set.size());
+		assertEquals(NUMBER_OF_RUNS, set.getRunCount());
+		assertEquals((NUMBER_OF_RUNS - 1) * 3, set.getRunStart(NUMBER_OF_RUNS - 1));
+	}
+
+	/**
+	 * @return a set of count runs of one value each, 0, 2, 4...
+	 */
+	private static IntervalSet alternatingRuns(int count) {
+		IntervalSet set = new IntervalSet();
+		for (int i = 0; i < count; i++) {
+			set.add(i * 2, i * 2 + 1);
+		}
+		return set;
+	}
+
+	private static void assertRuns(IntervalSet set, int... bounds) {
+		assertEquals(bounds.length / 2, set.getRunCount());
+		for (int run = 0; run < set.getRunCount(); run++) {
+			assertEquals(bounds[run * 2], set.getRunStart(run));
+			assertEquals(bounds[run * 2 + 1], set.getRunEnd(run));
+		}
+	}
+}